@@ -0,0 +1,99 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Material;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Palette and frames shared by the benchmarks. The palette is the speed-mode one
+ * (wool, concrete and terracotta) with their map colors written out, so
+ * {@link ColorManager} can be used without a server to ask for them.
+ */
+final class BenchmarkFrames {
+
+    private static final Object[][] PALETTE = {
+            {"WHITE", 0xFFFFFF, 0xD1B1A1},
+            {"ORANGE", 0xD87F33, 0x9F5224},
+            {"MAGENTA", 0xB24CD8, 0x95576C},
+            {"LIGHT_BLUE", 0x6699D8, 0x706C8A},
+            {"YELLOW", 0xE5E533, 0xBA8524},
+            {"LIME", 0x7FCC19, 0x677535},
+            {"PINK", 0xF27FA5, 0xA04D4E},
+            {"GRAY", 0x4C4C4C, 0x392923},
+            {"LIGHT_GRAY", 0x999999, 0x876B62},
+            {"CYAN", 0x4C7F99, 0x575C5C},
+            {"PURPLE", 0x7F3FB2, 0x7A4958},
+            {"BLUE", 0x334CB2, 0x4C3E5C},
+            {"BROWN", 0x664C33, 0x4C3223},
+            {"GREEN", 0x667F33, 0x4C522A},
+            {"RED", 0x993333, 0x8E3C2E},
+            {"BLACK", 0x191919, 0x251610},
+    };
+
+    private BenchmarkFrames() {
+    }
+
+    /**
+     * Replaces the plugin's palette with the fixed one.
+     */
+    static void installPalette() {
+        ColorManager.colorMap.clear();
+        for (Object[] entry : PALETTE) {
+            String dye = (String) entry[0];
+            Color dyeColor = new Color((Integer) entry[1]);
+            ColorManager.colorMap.put(Material.valueOf(dye + "_WOOL"), dyeColor);
+            ColorManager.colorMap.put(Material.valueOf(dye + "_CONCRETE"), dyeColor);
+            ColorManager.colorMap.put(Material.valueOf(dye + "_TERRACOTTA"), new Color((Integer) entry[2]));
+        }
+        ColorManager.colorMap.put(Material.TERRACOTTA, new Color(0xD87F33));
+    }
+
+    /**
+     * A short clip of {@code count} frames: smooth gradients that drift from frame
+     * to frame, a moving bright shape and a little sensor noise. Neighbouring pixels
+     * and consecutive frames are similar but rarely identical, as in real video.
+     */
+    static BufferedImage[] clip(int width, int height, int count) {
+        Random random = new Random(42);
+        BufferedImage[] frames = new BufferedImage[count];
+
+        for (int f = 0; f < count; f++) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            double t = f / 10.0;
+            int shapeX = (int) ((0.5 + 0.4 * Math.sin(t)) * width);
+            int shapeY = (int) ((0.5 + 0.4 * Math.cos(t * 0.7)) * height);
+            int shapeRadius = Math.max(2, Math.min(width, height) / 6);
+
+            for (int i = 0; i < width; i++) {
+                for (int j = 0; j < height; j++) {
+                    double u = (double) i / width;
+                    double v = (double) j / height;
+                    int r = (int) (127 + 100 * Math.sin(3 * u + t));
+                    int g = (int) (127 + 100 * Math.sin(2 * v - t * 0.5));
+                    int b = (int) (127 + 100 * Math.cos(2 * (u + v) + t * 0.3));
+
+                    int dx = i - shapeX;
+                    int dy = j - shapeY;
+                    if (dx * dx + dy * dy < shapeRadius * shapeRadius) {
+                        r = 240;
+                        g = 220;
+                        b = 60;
+                    }
+
+                    r = clamp(r + random.nextInt(9) - 4);
+                    g = clamp(g + random.nextInt(9) - 4);
+                    b = clamp(b + random.nextInt(9) - 4);
+                    image.setRGB(i, j, (r << 16) | (g << 8) | b);
+                }
+            }
+            frames[f] = image;
+        }
+        return frames;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
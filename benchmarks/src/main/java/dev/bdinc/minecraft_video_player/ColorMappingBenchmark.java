@@ -0,0 +1,68 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-palette lookups, one operation being a whole screen-sized frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColorMappingBenchmark {
+
+    @Param({"100x100", "160x90"})
+    public String size;
+
+    private Color[][] frames;
+    private Color paletteColor;
+    private int next;
+
+    @Setup
+    public void setup() {
+        BenchmarkFrames.installPalette();
+        paletteColor = ColorManager.colorMap.get(Material.LIGHT_BLUE_WOOL);
+
+        String[] dimensions = size.split("x");
+        BufferedImage[] clip = BenchmarkFrames.clip(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), 30);
+        frames = new Color[clip.length][];
+        for (int f = 0; f < clip.length; f++) {
+            BufferedImage image = clip[f];
+            Color[] pixels = new Color[image.getWidth() * image.getHeight()];
+            for (int i = 0; i < image.getWidth(); i++) {
+                for (int j = 0; j < image.getHeight(); j++) {
+                    pixels[i * image.getHeight() + j] = new Color(image.getRGB(i, j));
+                }
+            }
+            frames[f] = pixels;
+        }
+    }
+
+    private Color[] nextFrame() {
+        Color[] frame = frames[next];
+        next = (next + 1) % frames.length;
+        return frame;
+    }
+
+    @Benchmark
+    public void getBlock(Blackhole blackhole) {
+        for (Color color : nextFrame()) {
+            blackhole.consume(ColorManager.getBlock(color));
+        }
+    }
+
+    @Benchmark
+    public void getDistance(Blackhole blackhole) {
+        for (Color color : nextFrame()) {
+            blackhole.consume(ColorManager.getDistance(color, paletteColor));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Java2DFrameConverter} turning a decoded frame into the
+ * {@link BufferedImage} the mapping loop reads, as playback does for every frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameConverterBenchmark {
+
+    // 播放的是缩放后的视频，解码出来的帧就是屏幕大小
+    @Param({"100x100", "160x90", "1920x1080"})
+    public String size;
+
+    private Java2DFrameConverter converter;
+    private Frame frame;
+
+    @Setup
+    public void setup() {
+        String[] dimensions = size.split("x");
+        BufferedImage image = BenchmarkFrames.clip(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), 1)[0];
+
+        // 解码器输出的是 BGR24，先转换一次得到同样格式的帧
+        BufferedImage bgr = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        bgr.getGraphics().drawImage(image, 0, 0, null);
+        try (Java2DFrameConverter source = new Java2DFrameConverter()) {
+            frame = source.convert(bgr).clone();
+        }
+        converter = new Java2DFrameConverter();
+    }
+
+    @TearDown
+    public void tearDown() {
+        converter.close();
+        frame.close();
+    }
+
+    @Benchmark
+    public BufferedImage getBufferedImage() {
+        return converter.getBufferedImage(frame);
+    }
+}
@@ -0,0 +1,66 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-frame work of a paste: mapping the image to blocks ({@code Main.mapFrame}) and
+ * diffing it against what the previous frame left on the screen. Reading the
+ * world is left out, the previous frame stands in for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameMappingBenchmark {
+
+    @Param({"100x100", "160x90"})
+    public String size;
+
+    private BufferedImage[] images;
+    private MappedFrame[] mapped;
+    private int next;
+
+    @Setup
+    public void setup() {
+        BenchmarkFrames.installPalette();
+
+        String[] dimensions = size.split("x");
+        images = BenchmarkFrames.clip(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), 30);
+        mapped = new MappedFrame[images.length];
+        for (int f = 0; f < images.length; f++) {
+            mapped[f] = MappedFrame.fromImage(images[f]);
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % images.length;
+        return index;
+    }
+
+    @Benchmark
+    public MappedFrame mapFrame() {
+        return MappedFrame.fromImage(images[nextIndex()]);
+    }
+
+    @Benchmark
+    public List<BlockUpdate> diffFrame() {
+        int index = nextIndex();
+        Material[] current = mapped[(index + mapped.length - 1) % mapped.length].blocks;
+        return mapped[index].diff(0, 0, 0, current);
+    }
+
+    @Benchmark
+    public List<BlockUpdate> mapAndDiffFrame() {
+        int index = nextIndex();
+        Material[] current = mapped[(index + mapped.length - 1) % mapped.length].blocks;
+        return MappedFrame.fromImage(images[index]).diff(0, 0, 0, current);
+    }
+}
@@ -0,0 +1,37 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hand-off between a decoding thread and the screen's tick: a frame is added
+ * to a {@link VideoFrameProcessor} and taken out again, the path every played
+ * frame goes through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameQueueBenchmark {
+
+    private VideoFrameProcessor processor;
+    private MappedFrame frame;
+
+    @Setup
+    public void setup() {
+        BenchmarkFrames.installPalette();
+        frame = MappedFrame.fromImage(BenchmarkFrames.clip(Main.MAX_WIDTH, Main.MAX_HEIGHT, 1)[0]);
+        // 只用到帧队列，不需要插件和世界
+        processor = new VideoFrameProcessor(null, null, 0, 0, 0, new SessionMetrics("benchmark", "video"));
+    }
+
+    // 一次添加一次取出，队列不会无限增长
+    @Benchmark
+    public MappedFrame addAndTakeFrame() {
+        processor.addFrame(frame);
+        return processor.nextFrame();
+    }
+}
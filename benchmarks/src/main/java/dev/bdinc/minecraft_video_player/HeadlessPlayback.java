@@ -0,0 +1,217 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Material;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays a clip through the whole pipeline without a server: decode, conversion,
+ * color mapping, diffing and block placement into a {@link VoxelGridRenderSink}.
+ * Frames are processed as fast as possible, then frames/s, block changes per
+ * frame, latency percentiles per stage and peak memory are printed.
+ * <p>
+ * Usage: {@code HeadlessPlayback <clip.mp4> [seconds] [min-fps]}. A clip that does
+ * not exist is first generated from FFmpeg's {@code testsrc2} source, {@code seconds}
+ * long (10 by default). With {@code min-fps} the process exits with status 1 when
+ * playback is slower, so CI can fail on a regression.
+ */
+public class HeadlessPlayback {
+
+    private static final String[] STAGES = {"grab", "convert", "map", "diff", "place"};
+    private static final int GRAB = 0, CONVERT = 1, MAP = 2, DIFF = 3, PLACE = 4;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: HeadlessPlayback <clip.mp4> [seconds] [min-fps]");
+            System.exit(2);
+        }
+        File clip = new File(args[0]);
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        double minFps = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+
+        if (!clip.exists()) {
+            generateTestClip(clip, seconds);
+        }
+
+        BenchmarkFrames.installPalette();
+        double fps = play(clip);
+
+        if (fps < minFps) {
+            System.err.printf("FAIL: %.1f frames/s is below the required %.1f%n", fps, minFps);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Same as {@code ffmpeg -f lavfi -i testsrc2=size=640x360:rate=30 -t <seconds> clip.mp4}.
+     */
+    private static void generateTestClip(File clip, int seconds) throws Exception {
+        System.out.println("Generating " + seconds + "s test clip " + clip);
+
+        try (FFmpegFrameGrabber source = new FFmpegFrameGrabber("testsrc2=size=640x360:rate=30:duration=" + seconds)) {
+            source.setFormat("lavfi");
+            source.start();
+
+            try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(clip, source.getImageWidth(), source.getImageHeight())) {
+                recorder.setFormat("mp4");
+                recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+                recorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+                recorder.setFrameRate(source.getFrameRate());
+                recorder.setVideoQuality(4);
+                recorder.start();
+
+                Frame frame;
+                while ((frame = source.grabImage()) != null) {
+                    recorder.record(frame);
+                }
+                recorder.stop();
+            }
+            source.stop();
+        }
+    }
+
+    private static double play(File clip) throws Exception {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long peakPhysical = Pointer.physicalBytes();
+
+        Samples[] stages = new Samples[STAGES.length];
+        for (int s = 0; s < stages.length; s++) {
+            stages[s] = new Samples();
+        }
+        Samples changesPerFrame = new Samples();
+        int frames = 0;
+        long start;
+
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(clip);
+             Java2DFrameConverter converter = new Java2DFrameConverter()) {
+            grabber.start();
+
+            // 和 resizeVideoOptimized 相同的缩放规则，由 swscale 在解码时完成
+            double aspectRatio = (double) grabber.getImageWidth() / grabber.getImageHeight();
+            int width, height;
+            if (aspectRatio > (double) Main.MAX_WIDTH / Main.MAX_HEIGHT) {
+                width = Main.MAX_WIDTH;
+                height = (int) (Main.MAX_WIDTH / aspectRatio);
+            } else {
+                width = (int) (Main.MAX_HEIGHT * aspectRatio);
+                height = Main.MAX_HEIGHT;
+            }
+            width = Math.max(1, width);
+            height = Math.max(1, height);
+
+            grabber.stop();
+            grabber.setImageWidth(width);
+            grabber.setImageHeight(height);
+            grabber.start();
+
+            ScreenArea area = new ScreenArea(null, 0, 0, 0, width, height);
+            // 从调色板里的方块开始，空气等方块的颜色要从服务器查
+            VoxelGridRenderSink sink = VoxelGridRenderSink.of(area, Material.BLACK_CONCRETE);
+            BlockWriter writer = new BlockWriter(area, "headless", sink);
+
+            System.out.println("Playing " + clip + " at " + width + "x" + height);
+            start = System.nanoTime();
+
+            while (true) {
+                long t0 = System.nanoTime();
+                Frame frame = grabber.grabImage();
+                if (frame == null) break;
+                long t1 = System.nanoTime();
+                BufferedImage image = converter.getBufferedImage(frame);
+                long t2 = System.nanoTime();
+                MappedFrame mapped = MappedFrame.fromImage(image);
+                long t3 = System.nanoTime();
+                List<BlockUpdate> updates = mapped.diff(sink, 0, 0, 0);
+                long t4 = System.nanoTime();
+                // 和屏幕一样丢掉旧帧没写完的部分，这里不限预算，一次写完
+                writer.replace(updates);
+                writer.drain(Integer.MAX_VALUE);
+                long t5 = System.nanoTime();
+
+                stages[GRAB].add(t1 - t0);
+                stages[CONVERT].add(t2 - t1);
+                stages[MAP].add(t3 - t2);
+                stages[DIFF].add(t4 - t3);
+                stages[PLACE].add(t5 - t4);
+                changesPerFrame.add(updates.size());
+                frames++;
+
+                peakPhysical = Math.max(peakPhysical, Pointer.physicalBytes());
+            }
+
+            grabber.stop();
+        }
+
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        double fps = frames / elapsedSeconds;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        System.out.printf("Frames:            %d in %.2fs%n", frames, elapsedSeconds);
+        System.out.printf("Frames/s:          %.1f%n", fps);
+        System.out.printf("Block changes:     %.0f per frame (p50 %d, max %d)%n",
+                changesPerFrame.mean(), changesPerFrame.percentile(50), changesPerFrame.percentile(100));
+        System.out.println("Stage latency (ms):    p50      p95      p99      max");
+        for (int s = 0; s < STAGES.length; s++) {
+            Samples samples = stages[s];
+            System.out.printf("  %-8s       %8.3f %8.3f %8.3f %8.3f%n", STAGES[s],
+                    samples.percentile(50) / 1e6, samples.percentile(95) / 1e6,
+                    samples.percentile(99) / 1e6, samples.percentile(100) / 1e6);
+        }
+        System.out.printf("Peak heap:         %.1f MB%n", peakHeap / 1048576.0);
+        System.out.printf("Peak resident:     %.1f MB%n", peakPhysical / 1048576.0);
+
+        return fps;
+    }
+
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+        private boolean sorted;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            sorted = false;
+        }
+
+        long percentile(double p) {
+            if (size == 0) return 0;
+            if (!sorted) {
+                Arrays.sort(values, 0, size);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(p / 100 * size) - 1;
+            return values[Math.max(0, Math.min(size - 1, index))];
+        }
+
+        double mean() {
+            if (size == 0) return 0;
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += values[i];
+            }
+            return (double) sum / size;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Main.resizeImageOptimized}, scaling a full-size picture down to the
+ * screen resolution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResizeBenchmark {
+
+    @Param({"1280x720", "1920x1080"})
+    public String source;
+
+    private BufferedImage image;
+
+    @Setup
+    public void setup() {
+        String[] dimensions = source.split("x");
+        image = BenchmarkFrames.clip(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), 1)[0];
+    }
+
+    @Benchmark
+    public BufferedImage resizeImageOptimized() {
+        return Main.resizeImageOptimized(image);
+    }
+}
@@ -0,0 +1,194 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The original block states of a screen's layer, taken before anything is pasted
+ * over it. States are stored as a palette plus run-length encoded palette indices,
+ * and the encoded data can be spilled to a gzip file to free memory.
+ */
+public class BlockSnapshot {
+
+    private final ScreenArea area;
+    // 在 I/O 线程上写入磁盘，同时可能在别的线程上被读取大小
+    private volatile List<String> palette;
+    // 成对存储：调色板下标, 连续个数
+    private volatile int[] runs;
+    private volatile File spillFile;
+    // 只存停止回调，不引用屏幕本身；绘制结束后清空
+    private volatile Runnable stopDrawing;
+
+    private BlockSnapshot(ScreenArea area, List<String> palette, int[] runs) {
+        this.area = area;
+        this.palette = palette;
+        this.runs = runs;
+    }
+
+    // 读取区域这一层现在的方块，必须在拥有这些区块的线程上调用
+    public static BlockSnapshot capture(ScreenArea area) {
+        World world = area.getWorld();
+        Map<BlockData, Integer> indices = new HashMap<>();
+        List<String> palette = new ArrayList<>();
+        int[] runs = new int[64];
+        int runCount = 0;
+
+        int lastIndex = -1;
+        int runLength = 0;
+        // 和 MappedFrame 一样，先 x 后 z
+        for (int i = 0; i < area.getWidth(); i++) {
+            for (int j = 0; j < area.getHeight(); j++) {
+                BlockData data = world.getBlockAt(area.getX() + i, area.getY(), area.getZ() + j).getBlockData();
+                Integer index = indices.get(data);
+                if (index == null) {
+                    index = palette.size();
+                    indices.put(data, index);
+                    palette.add(data.getAsString());
+                }
+
+                if (index == lastIndex) {
+                    runLength++;
+                    continue;
+                }
+                if (runLength > 0) {
+                    if (runCount + 2 > runs.length) runs = Arrays.copyOf(runs, runs.length * 2);
+                    runs[runCount++] = lastIndex;
+                    runs[runCount++] = runLength;
+                }
+                lastIndex = index;
+                runLength = 1;
+            }
+        }
+        if (runLength > 0) {
+            if (runCount + 2 > runs.length) runs = Arrays.copyOf(runs, runs.length + 2);
+            runs[runCount++] = lastIndex;
+            runs[runCount++] = runLength;
+        }
+
+        return new BlockSnapshot(area, palette, Arrays.copyOf(runs, runCount));
+    }
+
+    // 按记录顺序生成恢复原方块的更新；已写入磁盘的会读回并删除文件
+    synchronized List<BlockUpdate> toBlockUpdates() throws IOException {
+        if (isSpilled()) load();
+
+        BlockData[] states = new BlockData[palette.size()];
+        for (int p = 0; p < states.length; p++) {
+            states[p] = Bukkit.createBlockData(palette.get(p));
+        }
+
+        List<BlockUpdate> updates = new ArrayList<>(area.getWidth() * area.getHeight());
+        int position = 0;
+        for (int r = 0; r < runs.length; r += 2) {
+            BlockData data = states[runs[r]];
+            for (int n = 0; n < runs[r + 1]; n++, position++) {
+                int i = position / area.getHeight();
+                int j = position % area.getHeight();
+                updates.add(new BlockUpdate(area.getX() + i, area.getY(), area.getZ() + j, data));
+            }
+        }
+        return updates;
+    }
+
+    // 压缩写入 directory 下的文件并释放内存
+    synchronized void spill(File directory) throws IOException {
+        if (isSpilled()) return;
+
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File file = File.createTempFile("undo_", ".snap", directory);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(palette.size());
+            for (String state : palette) {
+                out.writeUTF(state);
+            }
+            out.writeInt(runs.length);
+            for (int value : runs) {
+                out.writeInt(value);
+            }
+        }
+
+        spillFile = file;
+        palette = null;
+        runs = null;
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(spillFile))))) {
+            int paletteSize = in.readInt();
+            List<String> loadedPalette = new ArrayList<>(paletteSize);
+            for (int p = 0; p < paletteSize; p++) {
+                loadedPalette.add(in.readUTF());
+            }
+            int[] loadedRuns = new int[in.readInt()];
+            for (int r = 0; r < loadedRuns.length; r++) {
+                loadedRuns[r] = in.readInt();
+            }
+            palette = loadedPalette;
+            runs = loadedRuns;
+        }
+        discard();
+    }
+
+    // 删除磁盘上的文件（如果有）
+    synchronized void discard() {
+        if (spillFile != null) {
+            spillFile.delete();
+            spillFile = null;
+        }
+    }
+
+    // 编码后数据的大致堆内存大小，写入磁盘后为 0
+    long getMemoryBytes() {
+        List<String> palette = this.palette;
+        int[] runs = this.runs;
+        if (palette == null || runs == null) return 0;
+
+        long bytes = 4L * runs.length;
+        for (String state : palette) {
+            bytes += 40 + 2L * state.length();
+        }
+        return bytes;
+    }
+
+    boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    public ScreenArea getArea() {
+        return area;
+    }
+
+    // 恢复前怎样停下正在这块区域上绘制的屏幕或未写完的图片
+    void setStopDrawing(Runnable stopDrawing) {
+        this.stopDrawing = stopDrawing;
+    }
+
+    // 绘制结束后不再持有停止回调
+    void finishedDrawing() {
+        stopDrawing = null;
+    }
+
+    // 停下仍在绘制的东西，必须在拥有这块区域的线程上调用
+    void stopDrawing() {
+        Runnable stop = stopDrawing;
+        stopDrawing = null;
+        if (stop != null) {
+            stop.run();
+        }
+    }
+}
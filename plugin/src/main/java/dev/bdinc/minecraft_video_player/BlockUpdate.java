@@ -0,0 +1,40 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Comparator;
+
+class BlockUpdate {
+    final int x, y, z;
+    final Material material;
+    // 撤销时要恢复的完整方块状态；为 null 时使用 material 的默认状态
+    final BlockData data;
+    // 当前方块颜色和目标颜色的距离，越大越先写
+    final double error;
+
+    BlockUpdate(int x, int y, int z, Material material) {
+        this(x, y, z, material, 0);
+    }
+
+    BlockUpdate(int x, int y, int z, Material material, double error) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.material = material;
+        this.data = null;
+        this.error = error;
+    }
+
+    BlockUpdate(int x, int y, int z, BlockData data) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.material = data.getMaterial();
+        this.data = data;
+        this.error = 0;
+    }
+
+    static final Comparator<BlockUpdate> BY_ERROR_DESCENDING =
+            Comparator.comparingDouble((BlockUpdate update) -> update.error).reversed();
+}
@@ -0,0 +1,100 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.World;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds block updates waiting to be placed in one screen area. Updates can be
+ * submitted from any thread; {@link #drain(int)} places them on the thread that
+ * owns the area, at most {@code budget} per call, so a large frame is spread over
+ * several ticks.
+ */
+public class BlockWriter {
+
+    private final ScreenArea area;
+    private final String sessionId;
+    private final World world;
+    private final RenderSink sink;
+    private final Queue<BlockUpdate> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    public BlockWriter(ScreenArea area, String sessionId) {
+        this(area, sessionId, new NmsRenderSink(area.getWorld()));
+    }
+
+    BlockWriter(ScreenArea area, String sessionId, RenderSink sink) {
+        this.area = area;
+        this.sessionId = sessionId;
+        this.world = area.getWorld();
+        this.sink = sink;
+    }
+
+    void submit(List<BlockUpdate> updates) {
+        pending.addAll(updates);
+        pendingCount.addAndGet(updates.size());
+    }
+
+    // 丢掉还没写的更新换成新的，返回丢掉的数量；新帧到来时旧帧剩下的部分已经过时
+    int replace(List<BlockUpdate> updates) {
+        int dropped = clear();
+        submit(updates);
+        return dropped;
+    }
+
+    // 最多写入 budget 个方块并返回写入的数量，必须在拥有这块区域的线程上调用
+    int drain(int budget) {
+        if (budget <= 0 || pendingCount.get() == 0) return 0;
+
+        PipelineEvents.BlockPlace event = new PipelineEvents.BlockPlace();
+        event.begin();
+        int written = 0;
+        BlockUpdate update;
+        while (written < budget && (update = pending.poll()) != null) {
+            sink.setBlock(update);
+            written++;
+        }
+        int remaining = pendingCount.addAndGet(-written);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.placedBlocks = written;
+            event.pendingBlocks = remaining;
+            event.commit();
+        }
+        return written;
+    }
+
+    int clear() {
+        int dropped = 0;
+        while (pending.poll() != null) {
+            pendingCount.decrementAndGet();
+            dropped++;
+        }
+        return dropped;
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public ScreenArea getArea() {
+        return area;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    RenderSink getSink() {
+        return sink;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+}
@@ -15,11 +15,15 @@ import org.bukkit.util.VoxelShape;
 import java.awt.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ColorManager {
 
     public static HashMap<Material, Color> colorMap = new HashMap<>();
 
+    // 任意方块（不只是调色板里的）的地图颜色，用来估计当前画面和目标的差距
+    private static final Map<Material, Color> blockColorCache = new ConcurrentHashMap<>();
+
     public static Color getColor(Block block) {
         CraftBlock cb = (CraftBlock) block;
         BlockState bs = cb.getNMS();
@@ -38,6 +42,19 @@ public class ColorManager {
         return new Color(getRGBFromMapColor(mc));
     }
 
+    public static Color getCachedColor(Material material) {
+        Color color = colorMap.get(material);
+        if (color != null) return color;
+
+        return blockColorCache.computeIfAbsent(material, m -> {
+            try {
+                return getColor(m);
+            } catch (Exception e) {
+                return Color.BLACK;
+            }
+        });
+    }
+
     private static int getRGBFromMapColor(MapColor mapColor) {
         // 1.21中获取RGB颜色的正确方式
         return mapColor.col;
@@ -60,6 +77,19 @@ public class ColorManager {
         }
     }
 
+    // 顺序固定的调色板，解码子进程只用下标引用方块
+    public static Material[] getPaletteMaterials() {
+        return colorMap.keySet().toArray(new Material[0]);
+    }
+
+    public static Color[] getPaletteColors(Material[] materials) {
+        Color[] colors = new Color[materials.length];
+        for (int i = 0; i < materials.length; i++) {
+            colors[i] = colorMap.get(materials[i]);
+        }
+        return colors;
+    }
+
     public static boolean isCube(Block block) {
         VoxelShape voxelShape = block.getCollisionShape();
         BoundingBox boundingBox = block.getBoundingBox();
@@ -70,13 +100,23 @@ public class ColorManager {
         );
     }
 
-    // 缓存最近使用的材质
-    public static Material lastMaterial;
-    public static Color lastColor;
+    // 缓存最近使用的材质；帧在多个解码线程上映射，颜色和材质必须一起替换
+    private static volatile LastMatch lastMatch;
+
+    private static final class LastMatch {
+        final Color color;
+        final Material material;
+
+        LastMatch(Color color, Material material) {
+            this.color = color;
+            this.material = material;
+        }
+    }
 
     public static Material getBlock(Color color) {
-        if (lastColor != null && lastColor.equals(color)) {
-            return lastMaterial;
+        LastMatch last = lastMatch;
+        if (last != null && last.color.equals(color)) {
+            return last.material;
         }
 
         double minDistance = Double.MAX_VALUE;
@@ -90,8 +130,7 @@ public class ColorManager {
             }
         }
 
-        lastMaterial = closestMaterial;
-        lastColor = color;
+        lastMatch = new LastMatch(color, closestMaterial);
         return closestMaterial;
     }
 
@@ -0,0 +1,214 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Entry point of the decode worker process started by {@link DecodeWorkerClient}.
+ * Decodes, resizes and quantizes a video to palette indices and writes the frames
+ * into a {@link FrameRing}, so no native video code runs inside the server JVM.
+ * <p>
+ * Commands are read line by line from stdin:
+ * <pre>
+ * PALETTE &lt;rgb&gt; &lt;rgb&gt; ...
+ * OPEN &lt;startFrame&gt; &lt;maxWidth&gt; &lt;maxHeight&gt; &lt;maxFps&gt; &lt;path&gt;
+ * STOP
+ * QUIT
+ * </pre>
+ * Status lines are written to stdout: {@code READY <fps> <lengthInFrames> <width> <height> <sourceFps>},
+ * {@code STOPPED} once a {@code STOP} has finished, {@code EOF} and {@code ERROR <message>}.
+ * Anything else the process prints goes to stderr.
+ * <p>
+ * This class must not touch any Bukkit or server classes.
+ */
+public final class DecodeWorker {
+
+    private final FrameRing ring;
+    private final PrintStream status;
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+
+    private int[] palette = new int[0];
+    private Thread decodeThread;
+
+    private DecodeWorker(FrameRing ring, PrintStream status) {
+        this.ring = ring;
+        this.status = status;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: DecodeWorker <ring file>");
+            System.exit(2);
+        }
+
+        // stdout 只用于状态协议，其余输出（包括 FFmpeg 日志）都走 stderr
+        PrintStream status = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+
+        try (FrameRing ring = FrameRing.open(new File(args[0]))) {
+            new DecodeWorker(ring, status).run();
+        }
+    }
+
+    private void run() throws Exception {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            String command = line.trim();
+            String name = command.split(" ", 2)[0];
+            switch (name) {
+                case "PALETTE" -> {
+                    String[] colors = command.split(" ");
+                    palette = new int[colors.length - 1];
+                    for (int p = 1; p < colors.length; p++) {
+                        palette[p - 1] = Integer.parseInt(colors[p], 16);
+                    }
+                }
+                case "OPEN" -> {
+                    stopDecoding();
+                    // 路径放在最后，可以包含空格
+                    String[] open = command.split(" ", 6);
+                    long startFrame = Long.parseLong(open[1]);
+                    int maxWidth = Integer.parseInt(open[2]);
+                    int maxHeight = Integer.parseInt(open[3]);
+                    int maxFps = Integer.parseInt(open[4]);
+                    String path = open[5];
+                    decodeThread = new Thread(() -> decode(path, startFrame, maxWidth, maxHeight, maxFps), "DecodeWorker");
+                    decodeThread.start();
+                }
+                case "STOP" -> {
+                    stopDecoding();
+                    // 此后不会再写入帧，服务器可以安全地清空帧环
+                    status.println("STOPPED");
+                }
+                case "QUIT" -> {
+                    stopDecoding();
+                    return;
+                }
+                default -> status.println("ERROR Unknown command " + name);
+            }
+        }
+        // 服务器关闭了管道
+        stopDecoding();
+    }
+
+    private void stopDecoding() throws InterruptedException {
+        if (decodeThread == null) return;
+        stopRequested.set(true);
+        decodeThread.join();
+        decodeThread = null;
+        stopRequested.set(false);
+    }
+
+    private void decode(String path, long startFrame, int maxWidth, int maxHeight, int maxFps) {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(path)) {
+            grabber.start();
+
+            // 和 resizeVideoOptimized 相同的缩放规则，由 swscale 在解码时完成
+            double aspectRatio = (double) grabber.getImageWidth() / grabber.getImageHeight();
+            int width, height;
+            if (aspectRatio > (double) maxWidth / maxHeight) {
+                width = maxWidth;
+                height = (int) (maxWidth / aspectRatio);
+            } else {
+                width = (int) (maxHeight * aspectRatio);
+                height = maxHeight;
+            }
+            width = Math.max(1, width);
+            height = Math.max(1, height);
+
+            grabber.stop();
+            grabber.setImageWidth(width);
+            grabber.setImageHeight(height);
+            grabber.start();
+            if (startFrame > 0) {
+                grabber.setFrameNumber((int) startFrame);
+            }
+
+            double sourceFps = grabber.getFrameRate();
+            double fps = Math.min(sourceFps, maxFps);
+            status.println("READY " + fps + " " + grabber.getLengthInFrames() + " " + width + " " + height + " " + sourceFps);
+
+            Java2DFrameConverter converter = new Java2DFrameConverter();
+            Map<Integer, Integer> nearestCache = new HashMap<>();
+            double frameCredit = 1.0;
+
+            while (!stopRequested.get()) {
+                long grabStart = System.nanoTime();
+                Frame frame = grabber.grabImage();
+                if (frame == null) break;
+                long frameNumber = grabber.getFrameNumber();
+                // 源视频帧率高于上限时按比例丢帧
+                frameCredit = Math.min(1.0, frameCredit + fps / sourceFps);
+                if (frameCredit < 1.0) continue;
+                frameCredit -= 1.0;
+
+                BufferedImage image = converter.getBufferedImage(frame);
+                if (image == null) continue;
+                long quantizeStart = System.nanoTime();
+
+                if (nearestCache.size() > 65536) nearestCache.clear();
+                byte[] indices = quantize(image, nearestCache);
+                // 耗时随帧一起交给服务器，/vpstats 里的 decode 和 map 才有数据
+                long decodeNanos = quantizeStart - grabStart;
+                long quantizeNanos = System.nanoTime() - quantizeStart;
+                while (!ring.offer(frameNumber, image.getWidth(), image.getHeight(), decodeNanos, quantizeNanos, indices)) {
+                    if (stopRequested.get()) return;
+                    Thread.sleep(2);
+                }
+            }
+
+            if (!stopRequested.get()) {
+                status.println("EOF");
+            }
+        } catch (Exception e) {
+            status.println("ERROR " + e.getMessage());
+        }
+    }
+
+    private byte[] quantize(BufferedImage image, Map<Integer, Integer> nearestCache) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] indices = new byte[width * height];
+
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                int rgb = image.getRGB(i, j) & 0xFFFFFF;
+                indices[i * height + j] = (byte) (int) nearestCache.computeIfAbsent(rgb, this::nearest);
+            }
+        }
+        return indices;
+    }
+
+    // 与 ColorManager.getBlock 相同的欧氏距离
+    private int nearest(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int p = 0; p < palette.length; p++) {
+            int dr = r - ((palette[p] >> 16) & 0xFF);
+            int dg = g - ((palette[p] >> 8) & 0xFF);
+            int db = b - (palette[p] & 0xFF);
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = p;
+            }
+        }
+        return best;
+    }
+}
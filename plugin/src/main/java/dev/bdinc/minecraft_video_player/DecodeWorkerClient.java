@@ -0,0 +1,256 @@
+package dev.bdinc.minecraft_video_player;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a {@link DecodeWorker} in a child JVM and reads its frames from a shared
+ * {@link FrameRing}. If the worker dies unexpectedly it is restarted, up to
+ * {@code maxRestarts} times, from the frame after the last one received.
+ * <p>
+ * While nobody watches the screen the worker can be {@linkplain #pause() paused},
+ * so it stops decoding instead of filling the ring, and later
+ * {@linkplain #resume(int) resumed} further into the video.
+ */
+public class DecodeWorkerClient implements AutoCloseable {
+
+    private final Main plugin;
+    private final File ringFile;
+    private final FrameRing ring;
+    private final int maxWidth;
+    private final int maxHeight;
+    private final int[] palette;
+    private final List<String> jvmArgs;
+    private final int maxRestarts;
+
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private Process process;
+    private Writer control;
+    private File video;
+    private int maxFps;
+    private int restarts;
+    private boolean paused;
+    private volatile CompletableFuture<Void> stopped = CompletableFuture.completedFuture(null);
+
+    private volatile long lastFrameNumber = -1;
+    private volatile double frameRate;
+    private volatile double sourceFrameRate;
+    private volatile int lengthInFrames;
+    private volatile boolean endOfStream;
+    private volatile boolean failed;
+    private volatile boolean closing;
+
+    public DecodeWorkerClient(Main plugin, File ringFile, int slots, int maxWidth, int maxHeight,
+                              int[] palette, List<String> jvmArgs, int maxRestarts) throws IOException {
+        this.plugin = plugin;
+        this.ringFile = ringFile;
+        this.ring = FrameRing.create(ringFile, slots, maxWidth * maxHeight);
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.palette = palette;
+        this.jvmArgs = jvmArgs;
+        this.maxRestarts = maxRestarts;
+    }
+
+    // 开始解码；子进程打开文件、帧率已知后返回的 future 完成
+    public synchronized CompletableFuture<Void> open(File video, int maxFps) throws IOException {
+        this.video = video;
+        this.maxFps = maxFps;
+        launch(0);
+        return ready;
+    }
+
+    private synchronized void launch(long startFrame) throws IOException {
+        ring.reset();
+        endOfStream = false;
+        // 新进程一启动就会解码，之前的暂停随旧进程一起失效
+        paused = false;
+        stopped.complete(null);
+
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+                .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(pluginJar());
+        command.add(DecodeWorker.class.getName());
+        command.add(ringFile.getAbsolutePath());
+
+        Process launched = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        process = launched;
+        control = new BufferedWriter(new OutputStreamWriter(launched.getOutputStream(), StandardCharsets.UTF_8));
+
+        Thread statusReader = new Thread(() -> readStatus(launched), "VideoPlayer-DecodeWorker");
+        statusReader.setDaemon(true);
+        statusReader.start();
+        launched.onExit().thenAccept(this::onExit);
+
+        StringBuilder paletteCommand = new StringBuilder("PALETTE");
+        for (int rgb : palette) {
+            paletteCommand.append(' ').append(Integer.toHexString(rgb & 0xFFFFFF));
+        }
+        send(paletteCommand.toString());
+        sendOpen(startFrame);
+    }
+
+    private void sendOpen(long startFrame) throws IOException {
+        send("OPEN " + startFrame + " " + maxWidth + " " + maxHeight + " " + maxFps + " " + video.getAbsolutePath());
+    }
+
+    private void readStatus(Process worker) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(" ", 2);
+                switch (parts[0]) {
+                    case "READY" -> {
+                        String[] info = parts[1].split(" ");
+                        frameRate = Double.parseDouble(info[0]);
+                        lengthInFrames = Integer.parseInt(info[1]);
+                        sourceFrameRate = info.length > 4 ? Double.parseDouble(info[4]) : frameRate;
+                        ready.complete(null);
+                    }
+                    case "STOPPED" -> stopped.complete(null);
+                    case "EOF" -> endOfStream = true;
+                    case "ERROR" -> {
+                        // 解码本身出错（比如文件损坏），重启也没用
+                        String message = parts.length > 1 ? parts[1] : "unknown error";
+                        plugin.getLogger().severe("Decode worker error: " + message);
+                        failed = true;
+                        ready.completeExceptionally(new IOException(message));
+                    }
+                    default -> plugin.getLogger().warning("Unexpected decode worker output: " + line);
+                }
+            }
+        } catch (IOException e) {
+            // 进程退出时管道关闭，由 onExit 处理
+        }
+    }
+
+    private synchronized void onExit(Process worker) {
+        if (closing || failed || worker != process) return;
+
+        if (restarts >= maxRestarts) {
+            plugin.getLogger().severe("Decode worker exited with code " + worker.exitValue() + ", giving up after "
+                    + restarts + " restarts");
+            failed = true;
+            ready.completeExceptionally(new IOException("Decode worker exited"));
+            return;
+        }
+
+        restarts++;
+        plugin.getLogger().warning("Decode worker exited with code " + worker.exitValue() + ", restarting from frame "
+                + (lastFrameNumber + 1) + " (" + restarts + "/" + maxRestarts + ")");
+        try {
+            launch(lastFrameNumber + 1);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not restart decode worker: " + e.getMessage());
+            failed = true;
+        }
+    }
+
+    private synchronized void send(String command) throws IOException {
+        control.write(command);
+        control.write('\n');
+        control.flush();
+    }
+
+    // 让子进程停止解码；帧环里的帧留到 resume 时丢弃，期间 poll 返回 null
+    public synchronized void pause() throws IOException {
+        if (paused) return;
+        paused = true;
+        stopped = new CompletableFuture<>();
+        send("STOP");
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    // 从跳过的帧之后继续解码，返回丢弃的帧数；子进程还没确认停止时立即返回 -1，下个 tick 再试
+    public synchronized int resume(int skippedFrames) throws IOException {
+        if (!paused) return 0;
+        // 子进程确认不再写入后才能清空帧环
+        if (!stopped.isDone()) return -1;
+
+        paused = false;
+        int discarded = ring.size();
+        ring.reset();
+
+        long startFrame = lastFrameNumber + 1 + Math.round(skippedFrames * sourceFrameRate / frameRate);
+        lastFrameNumber = startFrame - 1;
+        if (lengthInFrames > 0 && startFrame >= lengthInFrames) {
+            endOfStream = true;
+            return discarded;
+        }
+        endOfStream = false;
+        sendOpen(startFrame);
+        return discarded;
+    }
+
+    // 取下一帧，还没有时返回 null
+    public synchronized PaletteFrame poll() {
+        if (paused) return null;
+        PaletteFrame frame = ring.poll();
+        if (frame != null) {
+            lastFrameNumber = frame.frameNumber;
+        }
+        return frame;
+    }
+
+    // 所有帧都已取走，或者子进程彻底失败
+    public boolean isFinished() {
+        return failed || (endOfStream && ring.isEmpty());
+    }
+
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    public int getLengthInFrames() {
+        return lengthInFrames;
+    }
+
+    @Override
+    public synchronized void close() {
+        closing = true;
+        if (process != null) {
+            try {
+                send("QUIT");
+                if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException e) {
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        try {
+            ring.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not close frame ring: " + e.getMessage());
+        }
+        // Windows 上文件在映射解除前删不掉，退出时或下次启动时再删
+        if (!ringFile.delete()) {
+            ringFile.deleteOnExit();
+        }
+    }
+
+    private static String pluginJar() throws IOException {
+        try {
+            return new File(DecodeWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (Exception e) {
+            throw new IOException("Could not locate the plugin jar", e);
+        }
+    }
+}
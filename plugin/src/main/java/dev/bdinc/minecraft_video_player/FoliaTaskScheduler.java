@@ -0,0 +1,83 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+/**
+ * {@link TaskScheduler} for Folia. The plugin is compiled against the Spigot API,
+ * so the global and region schedulers are reached through reflection.
+ */
+class FoliaTaskScheduler implements TaskScheduler {
+
+    private static final String SCHEDULER_PACKAGE = "io.papermc.paper.threadedregions.scheduler.";
+
+    private final Plugin plugin;
+    private final Object globalScheduler;
+    private final Object regionScheduler;
+    private final Method globalExecute;
+    private final Method globalRunAtFixedRate;
+    private final Method regionExecute;
+    private final Method regionRunAtFixedRate;
+    private final Method cancelTask;
+
+    FoliaTaskScheduler(Plugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+
+        Server server = Bukkit.getServer();
+        this.globalScheduler = server.getClass().getMethod("getGlobalRegionScheduler").invoke(server);
+        this.regionScheduler = server.getClass().getMethod("getRegionScheduler").invoke(server);
+
+        Class<?> globalClass = Class.forName(SCHEDULER_PACKAGE + "GlobalRegionScheduler");
+        this.globalExecute = globalClass.getMethod("execute", Plugin.class, Runnable.class);
+        this.globalRunAtFixedRate = globalClass.getMethod("runAtFixedRate",
+                Plugin.class, Consumer.class, long.class, long.class);
+
+        Class<?> regionClass = Class.forName(SCHEDULER_PACKAGE + "RegionScheduler");
+        this.regionExecute = regionClass.getMethod("execute",
+                Plugin.class, World.class, int.class, int.class, Runnable.class);
+        this.regionRunAtFixedRate = regionClass.getMethod("runAtFixedRate",
+                Plugin.class, World.class, int.class, int.class, Consumer.class, long.class, long.class);
+
+        this.cancelTask = Class.forName(SCHEDULER_PACKAGE + "ScheduledTask").getMethod("cancel");
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        invoke(globalExecute, globalScheduler, plugin, task);
+    }
+
+    @Override
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        Consumer<Object> consumer = scheduledTask -> task.run();
+        // Folia 要求首次延迟至少为 1 tick
+        Object scheduledTask = invoke(globalRunAtFixedRate, globalScheduler,
+                plugin, consumer, Math.max(1, delayTicks), periodTicks);
+        return () -> invoke(cancelTask, scheduledTask);
+    }
+
+    @Override
+    public void runAtRegion(World world, int chunkX, int chunkZ, Runnable task) {
+        invoke(regionExecute, regionScheduler, plugin, world, chunkX, chunkZ, task);
+    }
+
+    @Override
+    public Task runAtRegionTimer(World world, int chunkX, int chunkZ, Runnable task, long delayTicks, long periodTicks) {
+        Consumer<Object> consumer = scheduledTask -> task.run();
+        Object scheduledTask = invoke(regionRunAtFixedRate, regionScheduler,
+                plugin, world, chunkX, chunkZ, consumer, Math.max(1, delayTicks), periodTicks);
+        return () -> invoke(cancelTask, scheduledTask);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Folia scheduler call " + method.getName() + " failed", e);
+        }
+    }
+}
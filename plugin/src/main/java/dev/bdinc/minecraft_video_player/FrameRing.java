@@ -0,0 +1,135 @@
+package dev.bdinc.minecraft_video_player;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Single-producer, single-consumer ring of palette frames in a memory-mapped file,
+ * shared between the server and the decode worker process.
+ * <p>
+ * Layout: a 64 byte header ({@code magic, slotCount, slotSize, writeSeq, readSeq})
+ * followed by {@code slotCount} slots of {@code slotSize} bytes. Each slot holds
+ * {@code frameNumber, width, height, decodeNanos, quantizeNanos} and then
+ * {@code width * height} palette indices.
+ * The writer publishes a slot by advancing {@code writeSeq}; the reader frees it by
+ * advancing {@code readSeq}.
+ */
+class FrameRing implements AutoCloseable {
+
+    private static final int MAGIC = 0x56504652; // "VPFR"
+    private static final int HEADER_SIZE = 64;
+    private static final int WRITE_SEQ = 16;
+    private static final int READ_SEQ = 24;
+    private static final int SLOT_HEADER_SIZE = 32;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final RandomAccessFile file;
+    // 关闭时丢掉引用，映射在下一次 GC 时才会解除
+    private MappedByteBuffer buffer;
+    private final int slotCount;
+    private final int slotSize;
+
+    private FrameRing(RandomAccessFile file, MappedByteBuffer buffer, int slotCount, int slotSize) {
+        this.file = file;
+        this.buffer = buffer;
+        this.slotCount = slotCount;
+        this.slotSize = slotSize;
+    }
+
+    // 创建（或截断）帧环文件，每帧最多 maxPixels 个像素
+    static FrameRing create(File path, int slotCount, int maxPixels) throws IOException {
+        int slotSize = SLOT_HEADER_SIZE + maxPixels;
+        long length = HEADER_SIZE + (long) slotCount * slotSize;
+
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        file.setLength(length);
+        MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, slotCount);
+        buffer.putInt(8, slotSize);
+
+        FrameRing ring = new FrameRing(file, buffer, slotCount, slotSize);
+        ring.reset();
+        return ring;
+    }
+
+    static FrameRing open(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+        buffer.order(ByteOrder.nativeOrder());
+        if (buffer.getInt(0) != MAGIC) {
+            file.close();
+            throw new IOException("Not a frame ring file: " + path);
+        }
+        return new FrameRing(file, buffer, buffer.getInt(4), buffer.getInt(8));
+    }
+
+    // 清空帧环，只能在没有子进程写入时调用
+    void reset() {
+        LONGS.setRelease(buffer, WRITE_SEQ, 0L);
+        LONGS.setRelease(buffer, READ_SEQ, 0L);
+    }
+
+    // 有空位时写入一帧，满了返回 false
+    boolean offer(long frameNumber, int width, int height, long decodeNanos, long quantizeNanos, byte[] indices) {
+        if (SLOT_HEADER_SIZE + indices.length > slotSize) {
+            throw new IllegalArgumentException("Frame of " + indices.length + " pixels does not fit in a slot");
+        }
+
+        long writeSeq = (long) LONGS.getAcquire(buffer, WRITE_SEQ);
+        long readSeq = (long) LONGS.getAcquire(buffer, READ_SEQ);
+        if (writeSeq - readSeq >= slotCount) return false;
+
+        int slot = HEADER_SIZE + (int) (writeSeq % slotCount) * slotSize;
+        buffer.putLong(slot, frameNumber);
+        buffer.putInt(slot + 8, width);
+        buffer.putInt(slot + 12, height);
+        buffer.putLong(slot + 16, decodeNanos);
+        buffer.putLong(slot + 24, quantizeNanos);
+        buffer.put(slot + SLOT_HEADER_SIZE, indices);
+
+        LONGS.setRelease(buffer, WRITE_SEQ, writeSeq + 1);
+        return true;
+    }
+
+    // 取最早的一帧，空时返回 null
+    PaletteFrame poll() {
+        long readSeq = (long) LONGS.getAcquire(buffer, READ_SEQ);
+        long writeSeq = (long) LONGS.getAcquire(buffer, WRITE_SEQ);
+        if (readSeq >= writeSeq) return null;
+
+        int slot = HEADER_SIZE + (int) (readSeq % slotCount) * slotSize;
+        long frameNumber = buffer.getLong(slot);
+        int width = buffer.getInt(slot + 8);
+        int height = buffer.getInt(slot + 12);
+        long decodeNanos = buffer.getLong(slot + 16);
+        long quantizeNanos = buffer.getLong(slot + 24);
+        byte[] indices = new byte[width * height];
+        buffer.get(slot + SLOT_HEADER_SIZE, indices);
+
+        LONGS.setRelease(buffer, READ_SEQ, readSeq + 1);
+        return new PaletteFrame(frameNumber, width, height, decodeNanos, quantizeNanos, indices);
+    }
+
+    int size() {
+        return (int) ((long) LONGS.getAcquire(buffer, WRITE_SEQ) - (long) LONGS.getAcquire(buffer, READ_SEQ));
+    }
+
+    boolean isEmpty() {
+        return (long) LONGS.getAcquire(buffer, READ_SEQ) >= (long) LONGS.getAcquire(buffer, WRITE_SEQ);
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        file.close();
+    }
+}
@@ -0,0 +1,941 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.apache.commons.io.FileUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.*;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class Main extends JavaPlugin {
+
+    private static Main instance;
+
+    public static int MAX_WIDTH = 100;
+    public static int MAX_HEIGHT = 100;
+    public static volatile int MAX_FPS = 30;
+    public static boolean speedMode = true;
+
+    public static boolean cullingEnabled = true;
+    public static int VIEWER_RADIUS = 96;
+    public static int VIEWER_CHECK_TICKS = 20;
+
+    public static boolean decodeWorkerEnabled = false;
+
+    private static final int THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    // 下载、等待等 I/O 任务用虚拟线程；缩放等 CPU 任务用固定大小的线程池
+    private ExecutorService ioExecutor;
+    private ExecutorService processingExecutor;
+    private ScheduledExecutorService scheduledExecutor;
+
+    private final ConcurrentHashMap<String, PlaybackSession> activeSessions = new ConcurrentHashMap<>();
+    private final AtomicBoolean isShuttingDown = new AtomicBoolean(false);
+
+    private TaskScheduler scheduler;
+    private final ConcurrentHashMap<BlockWriter, TaskScheduler.Task> blockWriters = new ConcurrentHashMap<>();
+    private QualityController qualityController;
+
+    private UndoJournal undoJournal;
+    private MetricsRegistry metrics;
+
+    // 插件区块票在服务器上只是一个标记，不计数；屏幕和粘贴共用区块时由这里计数
+    private final ConcurrentHashMap<String, Integer> chunkTickets = new ConcurrentHashMap<>();
+
+    @Override
+    public void onEnable() {
+        instance = this;
+        scheduler = TaskScheduler.create(this);
+        loadSettings();
+        deleteStaleRingFiles();
+        initializeThreadPools();
+        startMetrics();
+        ColorManager.setupColorMap();
+        registerCommands();
+        undoJournal = new UndoJournal(
+                getConfig().getInt("undo.max-levels", 10),
+                getConfig().getLong("undo.memory-budget-kb", 8192) * 1024,
+                getConfig().getBoolean("undo.spill-to-disk", true),
+                new File(getDataFolder(), "undo"),
+                ioExecutor,
+                getLogger());
+        qualityController = new QualityController(this, getConfig().getConfigurationSection("quality"));
+        qualityController.start();
+        getLogger().info("Video Player Plugin enabled with optimized performance!");
+    }
+
+    @Override
+    public void onDisable() {
+        shutdownThreadPools();
+        if (metrics != null) {
+            metrics.shutdown();
+        }
+        if (undoJournal != null) {
+            undoJournal.clear();
+        }
+        for (World world : Bukkit.getWorlds()) {
+            world.removePluginChunkTickets(this);
+        }
+        chunkTickets.clear();
+        getLogger().info("Video Player Plugin disabled!");
+    }
+
+    // 上次运行没能删除的帧环文件（映射还没解除或服务器崩溃）
+    private void deleteStaleRingFiles() {
+        File[] rings = getDataFolder().listFiles((dir, name) -> name.endsWith(".ring"));
+        if (rings == null) return;
+        for (File ring : rings) {
+            if (!ring.delete()) {
+                getLogger().warning("Could not delete stale frame ring " + ring.getName());
+            }
+        }
+    }
+
+    private void loadSettings() {
+        saveDefaultConfig();
+        FileConfiguration config = getConfig();
+
+        cullingEnabled = config.getBoolean("culling.enabled", cullingEnabled);
+        VIEWER_RADIUS = Math.max(1, config.getInt("culling.viewer-radius", VIEWER_RADIUS));
+        VIEWER_CHECK_TICKS = Math.max(1, config.getInt("culling.check-interval-ticks", VIEWER_CHECK_TICKS));
+
+        decodeWorkerEnabled = config.getBoolean("decode-worker.enabled", decodeWorkerEnabled);
+    }
+
+    private void startMetrics() {
+        File csvFile = getConfig().getBoolean("metrics.csv", false) ? new File(getDataFolder(), "metrics.csv") : null;
+        metrics = new MetricsRegistry(getLogger(), csvFile);
+        metrics.start(scheduledExecutor, Math.max(1, getConfig().getLong("metrics.sample-interval-seconds", 1)) * 1000);
+        // 其他插件通过 ServicesManager 读取统计数据
+        getServer().getServicesManager().register(MetricsRegistry.class, metrics, this, ServicePriority.Normal);
+    }
+
+    private void initializeThreadPools() {
+        ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("VideoPlayer-IO-", 0).factory());
+
+        processingExecutor = Executors.newFixedThreadPool(THREAD_POOL_SIZE, r -> {
+            Thread t = new Thread(r, "VideoPlayer-Processing");
+            t.setDaemon(true);
+            return t;
+        });
+
+        scheduledExecutor = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "VideoPlayer-Scheduled");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private void shutdownThreadPools() {
+        isShuttingDown.set(true);
+
+        activeSessions.values().forEach(PlaybackSession::close);
+        activeSessions.clear();
+
+        shutdownExecutor(scheduledExecutor, "Scheduled");
+        shutdownExecutor(ioExecutor, "IO");
+        shutdownExecutor(processingExecutor, "Processing");
+    }
+
+    private void shutdownExecutor(ExecutorService executor, String name) {
+        if (executor != null && !executor.isShutdown()) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    getLogger().warning(name + " executor didn't terminate gracefully, forcing shutdown");
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void registerCommands() {
+        Objects.requireNonNull(getCommand("processimage")).setExecutor(new ProcessImageCommand());
+        Objects.requireNonNull(getCommand("processvideo")).setExecutor(new ProcessVideoCommand());
+        Objects.requireNonNull(getCommand("processstream")).setExecutor(new ProcessStreamCommand());
+        Objects.requireNonNull(getCommand("setres")).setExecutor(new SetResCommand());
+        Objects.requireNonNull(getCommand("undoimage")).setExecutor(new UndoCommand());
+        Objects.requireNonNull(getCommand("vpstats")).setExecutor(new VpStatsCommand());
+    }
+
+    public static Main getInstance() {
+        return instance;
+    }
+
+    public TaskScheduler getTaskScheduler() {
+        return scheduler;
+    }
+
+    public UndoJournal getUndoJournal() {
+        return undoJournal;
+    }
+
+    public QualityController getQualityController() {
+        return qualityController;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    // 每 tick 在区域线程上写入待放置的方块，预算由所有有待写方块的写入器平分
+    void registerBlockWriter(BlockWriter writer) {
+        ScreenArea area = writer.getArea();
+        SessionMetrics stats = metrics.getSession(writer.getSessionId());
+        TaskScheduler.Task task = scheduler.runAtRegionTimer(area.getWorld(),
+                area.getCenterChunkX(), area.getCenterChunkZ(), () -> {
+                    if (isShuttingDown.get() || writer.getPendingCount() == 0) return;
+                    long start = System.nanoTime();
+                    int written = writer.drain(Math.max(1, qualityController.getBlockBudget() / countBusyWriters()));
+                    if (stats != null) {
+                        stats.recordBlockWrite(System.nanoTime() - start, written);
+                    }
+                }, 1, 1);
+        blockWriters.put(writer, task);
+    }
+
+    void unregisterBlockWriter(BlockWriter writer) {
+        TaskScheduler.Task task = blockWriters.remove(writer);
+        if (task != null) {
+            task.cancel();
+        }
+        writer.clear();
+    }
+
+    private int countBusyWriters() {
+        int busy = 0;
+        for (BlockWriter writer : blockWriters.keySet()) {
+            if (writer.getPendingCount() > 0) busy++;
+        }
+        return Math.max(1, busy);
+    }
+
+    // 所有写入器里等待放置的方块数
+    public int getRenderBacklog() {
+        int backlog = 0;
+        for (BlockWriter writer : blockWriters.keySet()) {
+            backlog += writer.getPendingCount();
+        }
+        return backlog;
+    }
+
+    // 所有屏幕中最长的待贴帧队列
+    public int getDeepestFrameQueue() {
+        int deepest = 0;
+        for (SessionMetrics session : metrics.getSessions()) {
+            deepest = Math.max(deepest, session.getQueueDepth());
+        }
+        return deepest;
+    }
+
+    private PlaybackSession openSession(String kind) {
+        PlaybackSession session = new PlaybackSession(kind, getLogger());
+        activeSessions.put(session.getId(), session);
+        metrics.open(session.getId(), kind);
+        // 最先注册，所以最后执行
+        session.own(() -> {
+            activeSessions.remove(session.getId());
+            metrics.close(session.getId());
+        });
+        return session;
+    }
+
+    public void processImageAsync(BufferedImage image, Location location) {
+        PlaybackSession session = openSession("image");
+
+        // 会话在方块全部写完后由 finishWhenPlaced 关闭，这样写入也计入统计
+        session.fork(ioExecutor, () -> {
+            try {
+                if (!processImageInternal(image, location, session)) {
+                    closeLater(session);
+                }
+            } catch (Exception e) {
+                if (!session.isClosed()) {
+                    getLogger().severe("Error processing image: " + e.getMessage());
+                    e.printStackTrace();
+                }
+                closeLater(session);
+            }
+            return null;
+        });
+    }
+
+    // 返回 false 表示什么都没贴，由调用方关闭会话
+    private boolean processImageInternal(BufferedImage image, Location location, PlaybackSession session) throws InterruptedException, ExecutionException {
+        if (isShuttingDown.get()) return false;
+
+        World world = location.getWorld();
+        if (world == null) return false;
+
+        int x = location.getBlockX() - MAX_WIDTH / 2;
+        int y = location.getBlockY() - 5;
+        int z = location.getBlockZ() - MAX_HEIGHT / 2;
+
+        BufferedImage resizedImage = session.fork(processingExecutor, () -> resizeImageOptimized(image)).get();
+        // 颜色映射和视频帧一样在处理线程上完成，tick 线程只做比较和写入
+        MappedFrame frame = session.fork(processingExecutor, () -> mapFrame(resizedImage, session.getId(), 0)).get();
+
+        ScreenArea area = new ScreenArea(world, x, y, z, resizedImage.getWidth(), resizedImage.getHeight());
+        BlockWriter writer = new BlockWriter(area, session.getId());
+        // 中途出错或会话被关闭时也要注销写入器、归还区块票
+        session.own(() -> releaseWriter(writer));
+        area.loadChunks(this).get();
+
+        registerBlockWriter(writer);
+        scheduler.supplyAtRegion(world, area.getCenterChunkX(), area.getCenterChunkZ(), () -> {
+            // 第一次写入之前记录原来的方块；撤销时如果还没写完就先丢掉剩下的写入
+            BlockSnapshot snapshot = BlockSnapshot.capture(area);
+            snapshot.setStopDrawing(() -> unregisterBlockWriter(writer));
+            undoJournal.push(snapshot);
+            pasteFrameAsync(writer, x, y, z, frame, false);
+            return snapshot;
+        }).thenAccept(snapshot -> finishWhenPlaced(writer, () -> {
+            snapshot.finishedDrawing();
+            closeLater(session);
+        })).get();
+        return true;
+    }
+
+    // 和 stopScreen 一样在区域线程上注销写入器、释放区块票，重复调用没有影响
+    private void releaseWriter(BlockWriter writer) {
+        ScreenArea area = writer.getArea();
+        Runnable release = () -> {
+            unregisterBlockWriter(writer);
+            area.releaseChunks(this);
+        };
+        if (!isEnabled()) {
+            release.run();
+            return;
+        }
+        scheduler.runAtRegion(area.getWorld(), area.getCenterChunkX(), area.getCenterChunkZ(), release);
+    }
+
+    // 图片是一次性的：方块写完就注销写入器、释放区块票，然后运行 onPlaced
+    private void finishWhenPlaced(BlockWriter writer, Runnable onPlaced) {
+        ScreenArea area = writer.getArea();
+        TaskScheduler.Task[] task = new TaskScheduler.Task[1];
+        task[0] = scheduler.runAtRegionTimer(area.getWorld(), area.getCenterChunkX(), area.getCenterChunkZ(), () -> {
+            if (writer.getPendingCount() == 0 || isShuttingDown.get()) {
+                unregisterBlockWriter(writer);
+                area.releaseChunks(this);
+                task[0].cancel();
+                onPlaced.run();
+            }
+        }, 20, 20);
+    }
+
+    // 加插件区块票，已有时只加计数；必须在拥有该区块的线程上调用
+    void acquireChunkTicket(World world, int chunkX, int chunkZ) {
+        chunkTickets.merge(chunkKey(world, chunkX, chunkZ), 1, Integer::sum);
+        world.addPluginChunkTicket(chunkX, chunkZ, this);
+    }
+
+    // 减少计数，没人持有时才移除插件区块票；必须在拥有该区块的线程上调用
+    void releaseChunkTicket(World world, int chunkX, int chunkZ) {
+        Integer holders = chunkTickets.computeIfPresent(chunkKey(world, chunkX, chunkZ),
+                (key, count) -> count > 1 ? count - 1 : null);
+        if (holders == null) {
+            world.removePluginChunkTicket(chunkX, chunkZ, this);
+        }
+    }
+
+    private static String chunkKey(World world, int chunkX, int chunkZ) {
+        return world.getUID() + ":" + chunkX + ":" + chunkZ;
+    }
+
+    static BufferedImage resizeImageOptimized(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        if (width <= MAX_WIDTH && height <= MAX_HEIGHT) {
+            return image;
+        }
+
+        double ratio = (double) width / height;
+        int newWidth, newHeight;
+
+        if (ratio > 1) {
+            newWidth = MAX_WIDTH;
+            newHeight = (int) (MAX_WIDTH / ratio);
+        } else {
+            newHeight = MAX_HEIGHT;
+            newWidth = (int) (MAX_HEIGHT * ratio);
+        }
+
+        BufferedImage resized = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = resized.createGraphics();
+
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        g2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
+
+        g2d.drawImage(image, 0, 0, newWidth, newHeight, null);
+        g2d.dispose();
+
+        return resized;
+    }
+
+    public void processVideoAsync(URL url, Location location) {
+        PlaybackSession session = openSession("video");
+
+        // 整个准备过程在虚拟线程上等待下载和缩放，不占用处理线程
+        session.fork(ioExecutor, () -> {
+            try {
+                processVideoInternal(url, location, session);
+            } catch (Exception e) {
+                if (!session.isClosed()) {
+                    getLogger().severe("Error processing video (initial setup): " + e.getMessage());
+                    e.printStackTrace();
+                    scheduler.runGlobal(() ->
+                            Bukkit.broadcastMessage("§cError processing video: " + e.getMessage()));
+                }
+                closeLater(session);
+            }
+            return null;
+        });
+    }
+
+    private void processVideoInternal(URL url, Location location, PlaybackSession session) throws Exception {
+        File videoFile;
+        File resizedFile;
+        if (isShuttingDown.get()) {
+            closeLater(session);
+            return;
+        }
+
+        World world = location.getWorld();
+        if (world == null) {
+            closeLater(session);
+            return;
+        }
+
+        int x = location.getBlockX() - MAX_WIDTH / 2;
+        int y = location.getBlockY() - 10;
+        int z = location.getBlockZ() - MAX_HEIGHT / 2;
+        // 如果视频链接以file://开头则读取本地的
+        if (!url.toString().startsWith("file://")) {
+            scheduler.runGlobal(() ->
+                    Bukkit.broadcastMessage("§aDownloading video..."));
+
+            videoFile = downloadVideoAsync(url, session).get();
+            if (isShuttingDown.get()) {
+                closeLater(session);
+                return;
+            }
+            if (decodeWorkerEnabled) {
+                // 解码子进程自己缩放，服务器进程里不做任何 FFmpeg 工作
+                resizedFile = videoFile;
+            } else {
+                scheduler.runGlobal(() ->
+                        Bukkit.broadcastMessage("§aResizing video..."));
+
+                resizedFile = resizeVideoAsync(videoFile, session).get();
+                if (isShuttingDown.get()) {
+                    closeLater(session);
+                    return;
+                }
+            }
+        }else{
+            // 从插件目录
+            videoFile = new File(getDataFolder() + "\\" + url.toString().replace("file://", ""));
+            resizedFile = videoFile;
+        }
+
+        scheduler.runGlobal(() ->
+                Bukkit.broadcastMessage("§aProcessing video..."));
+
+        if (decodeWorkerEnabled) {
+            processVideoFramesOutOfProcess(resizedFile, world, x, y, z, session);
+        } else {
+            processVideoFrames(resizedFile, world, x, y, z, session);
+        }
+    }
+
+    private Future<File> downloadVideoAsync(URL url, PlaybackSession session) {
+        return session.fork(ioExecutor, () -> {
+            long startTime = System.currentTimeMillis();
+            // 用会话 ID 命名，同一毫秒开始的两个下载不会冲突
+            File file = new File(getDataFolder(), session.getId() + ".mp4");
+            session.own(() -> FileUtils.deleteQuietly(file));
+
+            if (!getDataFolder().exists()) {
+                getDataFolder().mkdirs();
+            }
+
+            PipelineEvents.Download event = new PipelineEvents.Download();
+            event.begin();
+            try {
+                FileUtils.copyURLToFile(url, file);
+            } catch (IOException e) {
+                getLogger().severe("Error downloading video: " + e.getMessage());
+                throw e;
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.sessionId = session.getId();
+                event.url = url.toString();
+                event.bytes = file.length();
+                event.commit();
+            }
+
+            long endTime = System.currentTimeMillis();
+            scheduler.runGlobal(() ->
+                    Bukkit.broadcastMessage("§aDownload completed in " + (endTime - startTime) + "ms"));
+
+            return file;
+        });
+    }
+
+    private Future<File> resizeVideoAsync(File video, PlaybackSession session) {
+        File resized = new File(video.getAbsolutePath().replace(".mp4", "_resized.mp4"));
+        session.own(() -> FileUtils.deleteQuietly(resized));
+
+        return session.fork(processingExecutor, () -> {
+            try {
+                return resizeVideoOptimized(video, session.getId());
+            } catch (Exception e) {
+                getLogger().severe("Error resizing video: " + e.getMessage());
+                throw e;
+            }
+        });
+    }
+
+    private File resizeVideoOptimized(File video, String sessionId) throws FrameGrabber.Exception, FrameRecorder.Exception {
+        long startTime = System.currentTimeMillis();
+        PipelineEvents.Transcode event = new PipelineEvents.Transcode();
+        event.begin();
+
+        try (FFmpegFrameGrabber frameGrabber = new FFmpegFrameGrabber(video)) {
+            frameGrabber.start();
+
+            double aspectRatio = (double) frameGrabber.getImageWidth() / frameGrabber.getImageHeight();
+            int newWidth, newHeight;
+            double targetAspectRatio = (double) MAX_WIDTH / MAX_HEIGHT;
+
+            if (aspectRatio > targetAspectRatio) {
+                newWidth = MAX_WIDTH;
+                newHeight = (int) (MAX_WIDTH / aspectRatio);
+            } else {
+                newWidth = (int) (MAX_HEIGHT * aspectRatio);
+                newHeight = MAX_HEIGHT;
+            }
+
+            // 尺寸至少为1x1
+            newWidth = Math.max(1, newWidth);
+            newHeight = Math.max(1, newHeight);
+
+            String outputFilename = video.getAbsolutePath().replace(".mp4", "_resized.mp4");
+
+            try (FFmpegFrameRecorder frameRecorder = new FFmpegFrameRecorder(outputFilename, newWidth, newHeight);
+                 OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat()) {
+                frameRecorder.setVideoCodec(frameGrabber.getVideoCodec());
+                frameRecorder.setFormat("mp4");
+                frameRecorder.setFrameRate(Math.min(frameGrabber.getFrameRate(), MAX_FPS));
+                frameRecorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+                frameRecorder.start();
+
+                Frame frame;
+                int frames = 0;
+
+                while ((frame = frameGrabber.grab()) != null && !isShuttingDown.get()
+                        && !Thread.currentThread().isInterrupted()) {
+                    Mat mat = converter.convertToMat(frame);
+                    if (mat != null) {
+                        Mat resizedMat = new Mat();
+                        org.bytedeco.opencv.global.opencv_imgproc.resize(mat, resizedMat, new Size(newWidth, newHeight));
+                        Frame resizedFrame = converter.convert(resizedMat);
+                        frameRecorder.record(resizedFrame);
+                        frames++;
+
+                        mat.release();
+                        resizedMat.release();
+                    }
+                }
+
+                frameRecorder.stop();
+
+                event.end();
+                if (event.shouldCommit()) {
+                    event.sessionId = sessionId;
+                    event.frames = frames;
+                    event.pixels = newWidth * newHeight;
+                    event.commit();
+                }
+            }
+
+            frameGrabber.stop();
+        }
+
+        try {
+            FileUtils.forceDelete(video);
+        } catch (IOException e) {
+            getLogger().warning("Could not delete original video file: " + e.getMessage());
+        }
+
+        long endTime = System.currentTimeMillis();
+        scheduler.runGlobal(() ->
+                Bukkit.broadcastMessage("§aVideo resized in " + (endTime - startTime) + "ms"));
+
+        return new File(video.getAbsolutePath().replace(".mp4", "_resized.mp4"));
+    }
+
+    private void stopScreen(VideoFrameProcessor processor) {
+        if (!isEnabled()) {
+            // 插件关闭时调度器已不可用，此时就在主线程上
+            processor.stop();
+            return;
+        }
+        ScreenArea area = processor.getArea();
+        scheduler.runAtRegion(area.getWorld(), area.getCenterChunkX(), area.getCenterChunkZ(), processor::stop);
+    }
+
+    private void processVideoFrames(File videoFile, World world, int x, int y, int z, PlaybackSession session) throws Exception {
+        String sessionId = session.getId();
+        final FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile);
+        // 先登记再 start，start 失败时也会释放原生资源；和解码任务在同一把锁上，不会在 grab 中途被释放
+        session.own(() -> {
+            synchronized (grabber) {
+                grabber.stop();
+                grabber.release();
+            }
+        });
+        grabber.start();
+
+        Java2DFrameConverter converter = new Java2DFrameConverter();
+        session.own(converter::close);
+        double frameRate = Math.min(grabber.getFrameRate(), MAX_FPS);
+        long frameDelay = Math.max(1, Math.round(1000.0 / frameRate));
+        // 负载高时质量控制器会降低帧率，多余的帧只解码不转换
+        final double[] frameCredit = {1.0};
+
+        SessionMetrics stats = metrics.getSession(sessionId);
+        stats.setTargetFps(frameRate);
+        VideoFrameProcessor processor = new VideoFrameProcessor(this, world, x, y, z, stats);
+        session.own(() -> stopScreen(processor));
+        // 先异步加载屏幕下的区块，避免播放时同步加载区块造成卡顿
+        processor.start().get();
+
+        // 屏幕无人观看时跳过的帧数，恢复时一次性 seek 过去
+        final AtomicInteger skippedFrames = new AtomicInteger();
+
+        Runnable videoFrameTask = () -> {
+            synchronized (grabber) {
+                if (session.isClosed()) return;
+                try {
+                    if (isShuttingDown.get() || processor.isStopped()
+                            || grabber.getFrameNumber() + skippedFrames.get() >= grabber.getLengthInFrames()) {
+                        getLogger().info("Video playback for task " + sessionId + " finished or stopped.");
+                        scheduler.runGlobal(() ->
+                                Bukkit.broadcastMessage("§aVideo playback finished for task " + sessionId + "."));
+                        closeLater(session);
+                        return;
+                    }
+
+                    if (!processor.hasViewers()) {
+                        skippedFrames.incrementAndGet();
+                        return;
+                    }
+
+                    int skipped = skippedFrames.getAndSet(0);
+                    if (skipped > 0) {
+                        grabber.setFrameNumber(grabber.getFrameNumber() + skipped);
+                        stats.framesDropped(skipped);
+                    }
+
+                    long frameNumber = grabber.getFrameNumber();
+                    long grabStart = System.nanoTime();
+                    PipelineEvents.Grab grabEvent = new PipelineEvents.Grab();
+                    grabEvent.begin();
+                    Frame frame = grabber.grab();
+                    grabEvent.end();
+                    long grabNanos = System.nanoTime() - grabStart;
+                    if (grabEvent.shouldCommit()) {
+                        grabEvent.sessionId = sessionId;
+                        grabEvent.frameNumber = frameNumber;
+                        grabEvent.commit();
+                    }
+
+                    frameCredit[0] = Math.min(1.0, frameCredit[0] + qualityController.getEffectiveFps() / frameRate);
+                    if (frame != null && frameCredit[0] >= 1.0) {
+                        frameCredit[0] -= 1.0;
+
+                        long convertStart = System.nanoTime();
+                        PipelineEvents.Convert convertEvent = new PipelineEvents.Convert();
+                        convertEvent.begin();
+                        BufferedImage image = converter.getBufferedImage(frame);
+                        convertEvent.end();
+                        stats.recordDecode(grabNanos + System.nanoTime() - convertStart);
+                        if (image != null) {
+                            if (convertEvent.shouldCommit()) {
+                                convertEvent.sessionId = sessionId;
+                                convertEvent.frameNumber = frameNumber;
+                                convertEvent.pixels = image.getWidth() * image.getHeight();
+                                convertEvent.commit();
+                            }
+                            // 在解码线程上映射颜色，主线程只需要和世界比较
+                            long mapStart = System.nanoTime();
+                            MappedFrame mapped = mapFrame(image, sessionId, frameNumber);
+                            stats.recordMap(System.nanoTime() - mapStart);
+                            processor.addFrame(mapped);
+                        }
+                    } else if (frame != null) {
+                        stats.framesDropped(1);
+                    }
+                } catch (Exception e) {
+                    getLogger().severe("Error processing video frame for task " + sessionId + ": " + e.getMessage());
+                    scheduler.runGlobal(() ->
+                            Bukkit.broadcastMessage("§cError playing video: " + e.getMessage()));
+                    closeLater(session);
+                }
+            }
+        };
+
+        session.track(scheduledExecutor.scheduleAtFixedRate(videoFrameTask, 0, frameDelay, TimeUnit.MILLISECONDS));
+    }
+
+    // 和 processVideoFrames 相同的播放循环，但解码、缩放和量化都在 DecodeWorker 子进程里，这里只把调色板下标换回方块
+    private void processVideoFramesOutOfProcess(File videoFile, World world, int x, int y, int z, PlaybackSession session) throws Exception {
+        String sessionId = session.getId();
+        Material[] paletteMaterials = ColorManager.getPaletteMaterials();
+        Color[] paletteColors = ColorManager.getPaletteColors(paletteMaterials);
+        if (paletteMaterials.length == 0) {
+            getLogger().severe("Palette is empty, the decode worker needs speed mode to be enabled");
+            closeLater(session);
+            return;
+        }
+        if (paletteMaterials.length > 256) {
+            getLogger().severe("Palette has " + paletteMaterials.length + " blocks, the decode worker supports at most 256");
+            closeLater(session);
+            return;
+        }
+
+        int[] paletteRgb = new int[paletteColors.length];
+        for (int i = 0; i < paletteColors.length; i++) {
+            paletteRgb[i] = paletteColors[i].getRGB();
+        }
+
+        final DecodeWorkerClient worker;
+        try {
+            worker = new DecodeWorkerClient(this, new File(getDataFolder(), sessionId + ".ring"),
+                    getConfig().getInt("decode-worker.ring-slots", 8), MAX_WIDTH, MAX_HEIGHT, paletteRgb,
+                    getConfig().getStringList("decode-worker.jvm-args"),
+                    getConfig().getInt("decode-worker.max-restarts", 3));
+        } catch (IOException e) {
+            getLogger().severe("Could not create frame ring for task " + sessionId + ": " + e.getMessage());
+            closeLater(session);
+            return;
+        }
+        session.own(worker::close);
+
+        worker.open(videoFile, MAX_FPS).get(30, TimeUnit.SECONDS);
+
+        double frameRate = worker.getFrameRate();
+        long frameDelay = Math.max(1, Math.round(1000.0 / frameRate));
+        final double[] frameCredit = {1.0};
+        final int[] skippedFrames = {0};
+
+        SessionMetrics stats = metrics.getSession(sessionId);
+        stats.setTargetFps(frameRate);
+        VideoFrameProcessor processor = new VideoFrameProcessor(this, world, x, y, z, stats);
+        session.own(() -> stopScreen(processor));
+        processor.start().get();
+
+        Runnable videoFrameTask = () -> {
+            if (session.isClosed()) return;
+            try {
+                if (isShuttingDown.get() || processor.isStopped() || worker.isFinished()) {
+                    getLogger().info("Video playback for task " + sessionId + " finished or stopped.");
+                    scheduler.runGlobal(() ->
+                            Bukkit.broadcastMessage("§aVideo playback finished for task " + sessionId + "."));
+                    closeLater(session);
+                    return;
+                }
+
+                // 无人观看时让子进程停止解码，只推进时钟；有人回来时从对应的帧继续
+                if (!processor.hasViewers()) {
+                    worker.pause();
+                    skippedFrames[0]++;
+                    return;
+                }
+                if (worker.isPaused()) {
+                    int discarded = worker.resume(skippedFrames[0]);
+                    if (discarded < 0) {
+                        // 子进程还没停下，不在共享的调度线程上等它，这一帧也算跳过
+                        skippedFrames[0]++;
+                        return;
+                    }
+                    stats.framesDropped(skippedFrames[0] + discarded);
+                    skippedFrames[0] = 0;
+                }
+
+                PaletteFrame frame = worker.poll();
+                if (frame == null) return;
+                stats.recordDecode(frame.decodeNanos);
+
+                frameCredit[0] = Math.min(1.0, frameCredit[0] + qualityController.getEffectiveFps() / frameRate);
+                if (frameCredit[0] >= 1.0) {
+                    frameCredit[0] -= 1.0;
+                    long mapStart = System.nanoTime();
+                    MappedFrame mapped = MappedFrame.fromPalette(frame, paletteMaterials, paletteColors);
+                    // 映射分成子进程里的量化和这里的查表两部分
+                    stats.recordMap(frame.quantizeNanos + System.nanoTime() - mapStart);
+                    processor.addFrame(mapped);
+                } else {
+                    stats.framesDropped(1);
+                }
+            } catch (Exception e) {
+                // 异常会让 scheduleAtFixedRate 悄悄停止任务，必须在这里关闭会话
+                getLogger().severe("Error processing video frame for task " + sessionId + ": " + e.getMessage());
+                scheduler.runGlobal(() ->
+                        Bukkit.broadcastMessage("§cError playing video: " + e.getMessage()));
+                closeLater(session);
+            }
+        };
+
+        session.track(scheduledExecutor.scheduleAtFixedRate(videoFrameTask, 0, frameDelay, TimeUnit.MILLISECONDS));
+    }
+
+    // 会话关闭会中断它自己的任务，所以不在任务线程里直接关闭
+    private void closeLater(PlaybackSession session) {
+        try {
+            ioExecutor.execute(session::close);
+        } catch (RejectedExecutionException e) {
+            // 插件关闭时线程池已停止，会话也已经被关闭
+            session.close();
+        }
+    }
+
+    private static MappedFrame mapFrame(BufferedImage image, String sessionId, long frameNumber) {
+        PipelineEvents.ColorMap event = new PipelineEvents.ColorMap();
+        event.begin();
+        MappedFrame frame = MappedFrame.fromImage(image, frameNumber);
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.frameNumber = frameNumber;
+            event.pixels = frame.width * frame.height;
+            event.commit();
+        }
+        return frame;
+    }
+
+    // 把和世界不同的方块加入写入队列；replacePending 时先丢掉旧帧没写完的部分。必须在区域线程上调用
+    void pasteFrameAsync(BlockWriter writer, int x, int y, int z, MappedFrame frame, boolean replacePending) {
+        PipelineEvents.Diff event = new PipelineEvents.Diff();
+        event.begin();
+        List<BlockUpdate> updates = frame.diff(writer.getSink(), x, y, z);
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = writer.getSessionId();
+            event.frameNumber = frame.frameNumber;
+            event.pixels = frame.width * frame.height;
+            event.changedBlocks = updates.size();
+            event.commit();
+        }
+
+        SessionMetrics stats = metrics.getSession(writer.getSessionId());
+        if (stats != null) {
+            stats.frameShown();
+        }
+
+        applyBlockUpdatesAsync(writer, updates, replacePending, frame.frameNumber);
+    }
+
+    // 方块由渲染循环按每 tick 预算放置
+    private void applyBlockUpdatesAsync(BlockWriter writer, List<BlockUpdate> updates, boolean replacePending, long frameNumber) {
+        if (isShuttingDown.get()) return;
+
+        PipelineEvents.BlockQueue event = new PipelineEvents.BlockQueue();
+        event.begin();
+        int dropped = 0;
+        if (replacePending) {
+            dropped = writer.replace(updates);
+        } else if (!updates.isEmpty()) {
+            writer.submit(updates);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = writer.getSessionId();
+            event.frameNumber = frameNumber;
+            event.queuedBlocks = updates.size();
+            event.droppedBlocks = dropped;
+            event.commit();
+        }
+    }
+
+    public void undoLastImageAsync() {
+        PlaybackSession session = openSession("undo");
+
+        session.fork(ioExecutor, () -> {
+            try {
+                if (!undoLastImage(session)) {
+                    closeLater(session);
+                }
+            } catch (Exception e) {
+                if (!session.isClosed()) {
+                    getLogger().severe("Error undoing last image: " + e.getMessage());
+                }
+                closeLater(session);
+            }
+            return null;
+        });
+    }
+
+    // 返回 false 表示没有可撤销的内容，由调用方关闭会话
+    private boolean undoLastImage(PlaybackSession session) throws Exception {
+        BlockSnapshot snapshot = undoJournal.pop();
+        if (snapshot == null) return false;
+
+        // 先停下还在这里绘制的屏幕或图片写入器，否则它会覆盖恢复的方块
+        ScreenArea original = snapshot.getArea();
+        scheduler.supplyAtRegion(original.getWorld(), original.getCenterChunkX(), original.getCenterChunkZ(), () -> {
+            snapshot.stopDrawing();
+            return null;
+        }).get();
+
+        // 用新的区域拿自己的区块票；原区域的票可能还被没写完的图片持有，随时会被释放
+        ScreenArea area = new ScreenArea(original.getWorld(), original.getX(), original.getY(), original.getZ(),
+                original.getWidth(), original.getHeight());
+
+        BlockWriter writer = new BlockWriter(area, session.getId());
+        session.own(() -> releaseWriter(writer));
+        area.loadChunks(this).get();
+
+        registerBlockWriter(writer);
+        applyBlockUpdatesAsync(writer, snapshot.toBlockUpdates(), false, 0);
+        finishWhenPlaced(writer, () -> closeLater(session));
+        return true;
+    }
+
+    public BufferedImage getImageFromURL(URL url) {
+        try {
+            return ImageIO.read(url);
+        } catch (Exception e) {
+            getLogger().severe("Error loading image from URL: " + e.getMessage());
+        }
+        return null;
+    }
+
+}
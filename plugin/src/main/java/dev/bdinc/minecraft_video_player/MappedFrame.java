@@ -0,0 +1,99 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Material;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A frame already mapped to blocks, ready to be diffed against the world. Pixels
+ * are stored column by column, like {@link PaletteFrame}.
+ */
+class MappedFrame {
+
+    final int width;
+    final int height;
+    final Material[] blocks;
+    // 目标像素颜色，用来计算当前方块和目标之间的误差；解码子进程的帧只有调色板颜色
+    final Color[] colors;
+    // 在视频里的帧号，图片为 0
+    final long frameNumber;
+    // 飞行记录开启时，记录这一帧在屏幕队列里等待的时间
+    PipelineEvents.FrameQueue queueEvent;
+
+    private MappedFrame(int width, int height, Material[] blocks, Color[] colors, long frameNumber) {
+        this.width = width;
+        this.height = height;
+        this.blocks = blocks;
+        this.colors = colors;
+        this.frameNumber = frameNumber;
+    }
+
+    static MappedFrame fromImage(BufferedImage image) {
+        return fromImage(image, 0);
+    }
+
+    static MappedFrame fromImage(BufferedImage image, long frameNumber) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Material[] blocks = new Material[width * height];
+        Color[] colors = new Color[width * height];
+
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                Color color = new Color(image.getRGB(i, j));
+                blocks[i * height + j] = ColorManager.getBlock(color);
+                colors[i * height + j] = color;
+            }
+        }
+        return new MappedFrame(width, height, blocks, colors, frameNumber);
+    }
+
+    // 解码子进程不传原始像素，目标颜色就是调色板颜色，diff 按两个调色板颜色的距离排序。
+    // 比 fromImage 粗：映射到同一方块的像素优先级相同，不管原始像素离它多远
+    static MappedFrame fromPalette(PaletteFrame frame, Material[] materials, Color[] paletteColors) {
+        int size = frame.width * frame.height;
+        Material[] blocks = new Material[size];
+        Color[] colors = new Color[size];
+
+        for (int p = 0; p < size; p++) {
+            int index = frame.indices[p] & 0xFF;
+            blocks[p] = materials[index];
+            colors[p] = paletteColors[index];
+        }
+        return new MappedFrame(frame.width, frame.height, blocks, colors, frame.frameNumber);
+    }
+
+    // 和 sink 里屏幕位置的方块比较，列出不同的方块，误差大的在前
+    List<BlockUpdate> diff(RenderSink sink, int x, int y, int z) {
+        Material[] current = new Material[width * height];
+
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                current[i * height + j] = sink.getType(x + i, y, z + j);
+            }
+        }
+        return diff(x, y, z, current);
+    }
+
+    // 和 current（同样按列存储的当前方块）比较，误差大的在前
+    List<BlockUpdate> diff(int x, int y, int z, Material[] current) {
+        List<BlockUpdate> updates = new ArrayList<>();
+
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                int p = i * height + j;
+                if (current[p] != blocks[p]) {
+                    double error = ColorManager.getDistance(ColorManager.getCachedColor(current[p]), colors[p]);
+                    updates.add(new BlockUpdate(x + i, y, z + j, blocks[p], error));
+                }
+            }
+        }
+
+        // 预算不够时先写差得最多的像素，整个画面一起收敛，而不是从左往右刷新
+        updates.sort(BlockUpdate.BY_ERROR_DESCENDING);
+        return updates;
+    }
+}
@@ -0,0 +1,185 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bytedeco.javacpp.Pointer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Metrics of every active playback session plus the process's memory use. Shown
+ * by {@code /vpstats} and registered with Bukkit's services manager, so other
+ * plugins can read it with
+ * {@code Bukkit.getServicesManager().load(MetricsRegistry.class)}. Can append a
+ * row per session and sample to a CSV file.
+ */
+public class MetricsRegistry {
+
+    // 和 /vpstats 一样，每个阶段都有 p50/p99/max
+    private static final String CSV_HEADER = "time,session,kind,fps,target_fps,decode_p50_ms,decode_p99_ms,decode_max_ms,"
+            + "map_p50_ms,map_p99_ms,map_max_ms,write_p50_ms,write_p99_ms,write_max_ms,blocks_per_s,frames_dropped,"
+            + "queue_depth,heap_mb,native_mb";
+
+    private final Logger logger;
+    private final File csvFile;
+    private final Map<String, SessionMetrics> sessions = new ConcurrentHashMap<>();
+
+    private BufferedWriter csv;
+    private ScheduledFuture<?> sampler;
+    // JavaCPP 的原生库加载失败时不再尝试
+    private volatile boolean javacppAvailable = true;
+
+    // csvFile 为 null 时只在内存里统计
+    MetricsRegistry(Logger logger, File csvFile) {
+        this.logger = logger;
+        this.csvFile = csvFile;
+    }
+
+    void start(ScheduledExecutorService executor, long intervalMillis) {
+        if (csvFile != null) {
+            try {
+                boolean exists = csvFile.exists();
+                if (exists && !CSV_HEADER.equals(readFirstLine(csvFile))) {
+                    // 列变了，旧文件改名保留，不往里追加对不上的行
+                    File old = new File(csvFile.getPath() + ".old");
+                    old.delete();
+                    exists = !csvFile.renameTo(old);
+                }
+                csv = new BufferedWriter(new FileWriter(csvFile, true));
+                if (!exists) {
+                    csv.write(CSV_HEADER);
+                    csv.newLine();
+                }
+            } catch (IOException e) {
+                logger.warning("Could not open " + csvFile.getName() + ", metrics will not be written: " + e.getMessage());
+                csv = null;
+            }
+        }
+        sampler = executor.scheduleAtFixedRate(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void shutdown() {
+        if (sampler != null) {
+            sampler.cancel(false);
+        }
+        synchronized (this) {
+            if (csv != null) {
+                try {
+                    csv.close();
+                } catch (IOException e) {
+                    logger.warning("Could not close " + csvFile.getName() + ": " + e.getMessage());
+                }
+                csv = null;
+            }
+        }
+        sessions.clear();
+    }
+
+    SessionMetrics open(String sessionId, String kind) {
+        SessionMetrics metrics = new SessionMetrics(sessionId, kind);
+        sessions.put(sessionId, metrics);
+        return metrics;
+    }
+
+    void close(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    // 活动会话的统计，没有时返回 null
+    public SessionMetrics getSession(String sessionId) {
+        return sessionId == null ? null : sessions.get(sessionId);
+    }
+
+    public Collection<SessionMetrics> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    public long getHeapUsedBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public long getHeapMaxBytes() {
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    // 堆外内存：JavaCPP 跟踪的 FFmpeg/OpenCV 缓冲区和直接缓冲区（包括帧环）
+    public long getNativeBytes() {
+        long bytes = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            bytes += Math.max(0, pool.getMemoryUsed());
+        }
+        if (javacppAvailable) {
+            try {
+                bytes += Pointer.totalBytes();
+            } catch (LinkageError e) {
+                javacppAvailable = false;
+            }
+        }
+        return bytes;
+    }
+
+    private void sample() {
+        Collection<SessionMetrics> active = getSessions();
+        for (SessionMetrics metrics : active) {
+            metrics.sample();
+        }
+
+        synchronized (this) {
+            if (csv == null || active.isEmpty()) return;
+
+            long now = System.currentTimeMillis();
+            double heapMb = getHeapUsedBytes() / 1048576.0;
+            double nativeMb = getNativeBytes() / 1048576.0;
+            try {
+                for (SessionMetrics metrics : active) {
+                    csv.write(String.format(Locale.ROOT, "%d,%s,%s,%.2f,%.2f,%s,%s,%s,%.0f,%d,%d,%.1f,%.1f",
+                            now, metrics.getSessionId(), metrics.getKind(),
+                            metrics.getEffectiveFps(), metrics.getTargetFps(),
+                            csvLatency(metrics.getDecodeTime()), csvLatency(metrics.getMapTime()),
+                            csvLatency(metrics.getBlockWriteTime()),
+                            metrics.getBlocksPerSecond(), metrics.getFramesDropped(), metrics.getQueueDepth(),
+                            heapMb, nativeMb));
+                    csv.newLine();
+                }
+                csv.flush();
+            } catch (IOException e) {
+                logger.warning("Could not write metrics, CSV output stopped: " + e.getMessage());
+                try {
+                    csv.close();
+                } catch (IOException ignored) {
+                }
+                csv = null;
+            }
+        }
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String csvLatency(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT, "%.3f,%.3f,%.3f", millis(histogram.getPercentile(50)),
+                millis(histogram.getPercentile(99)), millis(histogram.getMax()));
+    }
+
+    private static String readFirstLine(File file) throws IOException {
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            return in.readLine();
+        }
+    }
+}
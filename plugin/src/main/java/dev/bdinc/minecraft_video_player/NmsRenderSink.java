@@ -0,0 +1,40 @@
+package dev.bdinc.minecraft_video_player;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.craftbukkit.v1_21_R3.CraftWorld;
+import org.bukkit.craftbukkit.v1_21_R3.block.data.CraftBlockData;
+import org.bukkit.craftbukkit.v1_21_R3.util.CraftMagicNumbers;
+
+/**
+ * Places blocks straight into the server's level, skipping the Bukkit block API.
+ */
+class NmsRenderSink implements RenderSink {
+
+    private final World world;
+
+    NmsRenderSink(World world) {
+        this.world = world;
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        return world.getBlockAt(x, y, z).getType();
+    }
+
+    @Override
+    public void setBlock(BlockUpdate update) {
+        BlockPos pos = new BlockPos(update.x, update.y, update.z);
+        // setBlock 第二个参数是 BlockState，第三个是 flag
+        // flag 2: 不重新渲染方块, 不触发方块更新 (效率高)
+        // flag 3: 重新渲染方块, 触发方块更新 (标准)
+        BlockState state = update.data != null
+                ? ((CraftBlockData) update.data).getState()
+                : CraftMagicNumbers.getBlock(update.material).defaultBlockState();
+        ServerLevel nmsWorld = ((CraftWorld) world).getHandle();
+        nmsWorld.setBlock(pos, state, Main.speedMode ? 2 : 3);
+    }
+}
@@ -0,0 +1,25 @@
+package dev.bdinc.minecraft_video_player;
+
+/**
+ * A decoded frame as palette indices, as produced by the decode worker. Pixels are
+ * stored column by column: the index of pixel {@code (i, j)} is {@code i * height + j}.
+ */
+public class PaletteFrame {
+
+    final long frameNumber;
+    final int width;
+    final int height;
+    // 子进程里解码（读取加转换）和量化到调色板的耗时
+    final long decodeNanos;
+    final long quantizeNanos;
+    final byte[] indices;
+
+    PaletteFrame(long frameNumber, int width, int height, long decodeNanos, long quantizeNanos, byte[] indices) {
+        this.frameNumber = frameNumber;
+        this.width = width;
+        this.height = height;
+        this.decodeNanos = decodeNanos;
+        this.quantizeNanos = quantizeNanos;
+        this.indices = indices;
+    }
+}
@@ -0,0 +1,116 @@
+package dev.bdinc.minecraft_video_player;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events, one per pipeline stage. Each is created, begun and
+ * committed around the stage; without a running recording the JIT removes them,
+ * so they cost nothing. Record with {@code -XX:StartFlightRecording} or
+ * {@code jcmd <pid> JFR.start} and they appear next to the GC and tick events.
+ */
+final class PipelineEvents {
+
+    private PipelineEvents() {
+    }
+
+    @Category({"Minecraft Video Player", "Pipeline"})
+    @StackTrace(false)
+    abstract static class StageEvent extends Event {
+        @Label("Session")
+        String sessionId;
+
+        @Label("Frame Number")
+        long frameNumber;
+    }
+
+    @Name("dev.bdinc.minecraft_video_player.Download")
+    @Label("Download")
+    @Description("A video downloaded to the plugin folder")
+    static class Download extends StageEvent {
+        @Label("URL")
+        String url;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("dev.bdinc.minecraft_video_player.Transcode")
+    @Label("Transcode")
+    @Description("A downloaded video resized to the screen resolution")
+    static class Transcode extends StageEvent {
+        @Label("Frames")
+        int frames;
+
+        @Label("Pixels per Frame")
+        int pixels;
+    }
+
+    @Name("dev.bdinc.minecraft_video_player.Grab")
+    @Label("Grab")
+    @Description("One frame decoded by FFmpeg")
+    static class Grab extends StageEvent {
+    }
+
+    @Name("dev.bdinc.minecraft_video_player.Convert")
+    @Label("Convert")
+    @Description("A decoded frame converted to a BufferedImage")
+    static class Convert extends StageEvent {
+        @Label("Pixels")
+        int pixels;
+    }
+
+    @Name("dev.bdinc.minecraft_video_player.ColorMap")
+    @Label("Color Map")
+    @Description("Every pixel of a frame mapped to the nearest palette block")
+    static class ColorMap extends StageEvent {
+        @Label("Pixels")
+        int pixels;
+    }
+
+    @Name("dev.bdinc.minecraft_video_player.FrameQueue")
+    @Label("Frame Queue")
+    @Description("Time a mapped frame waited for the screen's tick")
+    static class FrameQueue extends StageEvent {
+    }
+
+    @Name("dev.bdinc.minecraft_video_player.Diff")
+    @Label("Diff")
+    @Description("A frame compared with the blocks on the screen")
+    static class Diff extends StageEvent {
+        @Label("Pixels")
+        int pixels;
+
+        @Label("Changed Blocks")
+        int changedBlocks;
+    }
+
+    @Name("dev.bdinc.minecraft_video_player.BlockQueue")
+    @Label("Block Queue")
+    @Description("Block updates handed to a screen's writer")
+    static class BlockQueue extends StageEvent {
+        @Label("Queued Blocks")
+        int queuedBlocks;
+
+        @Label("Dropped Blocks")
+        @Description("Unplaced updates of an older frame that were replaced")
+        int droppedBlocks;
+    }
+
+    @Name("dev.bdinc.minecraft_video_player.BlockPlace")
+    @Label("Block Place")
+    @Description("Blocks placed by a writer in one tick, on the thread that owns the screen")
+    static class BlockPlace extends StageEvent {
+        @Label("Placed Blocks")
+        int placedBlocks;
+
+        @Label("Pending Blocks")
+        int pendingBlocks;
+    }
+}
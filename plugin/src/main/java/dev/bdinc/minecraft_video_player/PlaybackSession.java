@@ -0,0 +1,106 @@
+package dev.bdinc.minecraft_video_player;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * One playback (or image paste) and everything it started: background tasks,
+ * native resources and temporary files. Closing the session interrupts its tasks
+ * and then closes its resources in reverse order of registration, so the download,
+ * decoder and screen of a video are always stopped together, whichever of them
+ * finishes or fails first.
+ */
+public class PlaybackSession implements AutoCloseable {
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final String id;
+    private final Logger logger;
+    private final List<Future<?>> tasks = new ArrayList<>();
+    private final Deque<Resource> resources = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    @FunctionalInterface
+    public interface Resource {
+        void close() throws Exception;
+    }
+
+    PlaybackSession(String kind, Logger logger) {
+        this.id = kind + "_" + NEXT_ID.incrementAndGet();
+        this.logger = logger;
+    }
+
+    // 作为会话的一部分在 executor 上运行，关闭会话时取消并中断
+    synchronized <T> Future<T> fork(ExecutorService executor, Callable<T> task) {
+        if (closed) throw new CancellationException("Session " + id + " is closed");
+
+        Future<T> future = executor.submit(task);
+        tasks.add(future);
+        return future;
+    }
+
+    // 会话关闭时取消 future
+    synchronized void track(Future<?> future) {
+        if (closed) {
+            future.cancel(true);
+            return;
+        }
+        tasks.add(future);
+    }
+
+    // 会话关闭时按注册的相反顺序关闭；会话已关闭时立即关闭
+    void own(Resource resource) {
+        synchronized (this) {
+            if (!closed) {
+                resources.push(resource);
+                return;
+            }
+        }
+        closeQuietly(resource);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void close() {
+        List<Future<?>> toCancel;
+        Deque<Resource> toClose;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            toCancel = new ArrayList<>(tasks);
+            toClose = new ArrayDeque<>(resources);
+            tasks.clear();
+            resources.clear();
+        }
+
+        for (Future<?> task : toCancel) {
+            task.cancel(true);
+        }
+        while (!toClose.isEmpty()) {
+            closeQuietly(toClose.pop());
+        }
+    }
+
+    private void closeQuietly(Resource resource) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            logger.warning("Error releasing resource of session " + id + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package dev.bdinc.minecraft_video_player;
+
+import net.minecraft.server.MinecraftServer;
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Adjusts the playback FPS and the per-tick block budget from the server's average
+ * tick time (MSPT) and the number of block updates still waiting to be placed.
+ * Under load it first cuts the block budget, then the FPS; with headroom it raises
+ * them again up to the configured limits. Every change is logged.
+ * <p>
+ * Disabled on Folia: each region ticks on its own and the server-wide average tick
+ * time says nothing about the regions the screens are in, so playback keeps the
+ * configured FPS and block budget there.
+ */
+public class QualityController {
+
+    // 屏幕每 tick 最多贴一帧，超过这个帧率的帧只会在队列里越积越多
+    private static final int TICKS_PER_SECOND = 20;
+
+    private final Main plugin;
+
+    private final boolean enabled;
+    private final double targetMspt;
+    private final double headroomMspt;
+    private final int maxBacklog;
+    private final int maxQueuedFrames;
+    private final int minFps;
+    private final int minBlockBudget;
+    private final int maxBlockBudget;
+    private final int intervalTicks;
+
+    // 降低后的帧率上限；没有降低时为 Integer.MAX_VALUE，跟随 /setres 设置的 Main.MAX_FPS
+    private volatile int fpsLimit = Integer.MAX_VALUE;
+    private volatile int blockBudget;
+
+    public QualityController(Main plugin, ConfigurationSection config) {
+        this.plugin = plugin;
+        boolean configured = config.getBoolean("enabled", true);
+        if (configured && TaskScheduler.isFolia()) {
+            plugin.getLogger().info("Adaptive quality is not supported on Folia, using the configured FPS and block budget");
+            configured = false;
+        }
+        this.enabled = configured;
+        this.targetMspt = config.getDouble("target-mspt", 45.0);
+        this.headroomMspt = config.getDouble("headroom-mspt", 10.0);
+        this.maxBacklog = Math.max(1, config.getInt("max-backlog", 20000));
+        this.maxQueuedFrames = Math.max(1, config.getInt("max-queued-frames", 10));
+        this.minFps = Math.max(1, config.getInt("min-fps", 5));
+        this.minBlockBudget = Math.max(1, config.getInt("min-block-budget", 200));
+        this.maxBlockBudget = Math.max(minBlockBudget, config.getInt("max-block-budget", 5000));
+        this.intervalTicks = Math.max(1, config.getInt("interval-ticks", 40));
+
+        this.blockBudget = clamp(config.getInt("block-budget", 1000), minBlockBudget, maxBlockBudget);
+    }
+
+    public void start() {
+        if (!enabled) return;
+
+        plugin.getTaskScheduler().runGlobalTimer(this::evaluate, intervalTicks, intervalTicks);
+    }
+
+    private void evaluate() {
+        double mspt = MinecraftServer.getServer().getAverageTickTimeNanos() / 1_000_000.0;
+        int backlog = plugin.getRenderBacklog();
+        int queuedFrames = plugin.getDeepestFrameQueue();
+        int fps = getEffectiveFps();
+
+        if (mspt > targetMspt) {
+            // 先减少每 tick 写入的方块数，已经最低了再降帧率
+            if (blockBudget > minBlockBudget) {
+                setBlockBudget(Math.max(minBlockBudget, blockBudget * 3 / 4), mspt, backlog);
+            } else if (fps > minFps) {
+                setEffectiveFps(Math.max(minFps, fps - Math.max(1, fps / 4)), mspt, backlog);
+            }
+        } else if (backlog > maxBacklog || queuedFrames > maxQueuedFrames) {
+            // 方块写不完或帧在屏幕队列里堆积，说明产生帧的速度太快
+            if (fps > minFps) {
+                setEffectiveFps(Math.max(minFps, fps - Math.max(1, fps / 4)), mspt, backlog);
+            }
+        } else if (mspt < targetMspt - headroomMspt) {
+            if (backlog > blockBudget && blockBudget < maxBlockBudget) {
+                setBlockBudget(Math.min(maxBlockBudget, blockBudget + Math.max(1, blockBudget / 4)), mspt, backlog);
+            } else if (fps < Math.min(Main.MAX_FPS, TICKS_PER_SECOND)) {
+                setEffectiveFps(Math.min(Main.MAX_FPS, fps + Math.max(1, fps / 4)), mspt, backlog);
+            }
+        }
+    }
+
+    private void setBlockBudget(int budget, double mspt, int backlog) {
+        plugin.getLogger().info(String.format("Adaptive quality: block budget %d -> %d (MSPT %.1f, backlog %d)",
+                blockBudget, budget, mspt, backlog));
+        blockBudget = budget;
+    }
+
+    private void setEffectiveFps(int fps, double mspt, int backlog) {
+        plugin.getLogger().info(String.format("Adaptive quality: FPS %d -> %d (MSPT %.1f, backlog %d)",
+                getEffectiveFps(), fps, mspt, backlog));
+        fpsLimit = fps >= Main.MAX_FPS ? Integer.MAX_VALUE : fps;
+    }
+
+    // 当前应该播放的帧率，不超过 Main.MAX_FPS 和 tick 频率
+    public int getEffectiveFps() {
+        int maxFps = Math.min(Main.MAX_FPS, TICKS_PER_SECOND);
+        return enabled ? Math.min(fpsLimit, maxFps) : maxFps;
+    }
+
+    // 所有屏幕每 tick 共享的方块写入数量
+    public int getBlockBudget() {
+        return blockBudget;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,15 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Material;
+
+/**
+ * Where mapped frames end up. Frames are diffed against {@link #getType} and the
+ * resulting updates are placed with {@link #setBlock}, both called on the thread
+ * that owns the screen's area.
+ */
+interface RenderSink {
+
+    Material getType(int x, int y, int z);
+
+    void setBlock(BlockUpdate update);
+}
@@ -0,0 +1,224 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The flat block footprint a screen occupies: {@code width} blocks along X and
+ * {@code height} blocks along Z, starting at the corner {@code (x, y, z)}.
+ */
+public class ScreenArea {
+
+    // Paper 的 World#getChunkAtAsync，Spigot 上为 null
+    private static final Method GET_CHUNK_AT_ASYNC = findGetChunkAtAsync();
+    // Paper/Folia 的 Bukkit#isOwnedByCurrentRegion，Spigot 上为 null
+    private static final Method IS_OWNED_BY_CURRENT_REGION = findIsOwnedByCurrentRegion();
+
+    private final World world;
+    private final int x;
+    private final int y;
+    private final int z;
+    private final int width;
+    private final int height;
+
+    // 本区域持有票的区块，释放时只还自己拿过的
+    private final Set<Long> ticketedChunks = ConcurrentHashMap.newKeySet();
+
+    public ScreenArea(World world, int x, int y, int z, int width, int height) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.width = width;
+        this.height = height;
+    }
+
+    // 有玩家站在已加载的区块里、离屏幕任一部分不超过 radius 格时返回 true，必须在区域线程上调用。
+    // Folia 上只看当前区域拥有的玩家：足够近的玩家会让区块一直加载到屏幕，所以总和屏幕在同一区域
+    public boolean hasViewers(int radius) {
+        long radiusSquared = (long) radius * radius;
+
+        for (Player player : world.getPlayers()) {
+            if (!isOwnedByCurrentRegion(player)) continue;
+
+            Location loc = player.getLocation();
+            int px = loc.getBlockX();
+            int py = loc.getBlockY();
+            int pz = loc.getBlockZ();
+
+            if (!world.isChunkLoaded(px >> 4, pz >> 4)) continue;
+
+            // 到屏幕矩形的最近距离，而不是到中心点
+            long dx = Math.max(0, Math.max(x - px, px - (x + width - 1)));
+            long dy = py - y;
+            long dz = Math.max(0, Math.max(z - pz, pz - (z + height - 1)));
+
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 不阻塞 tick 地加载屏幕下的区块并各加一张票，播放时不会同步加载区块；全部完成后 future 完成
+    public CompletableFuture<Void> loadChunks(Main plugin) {
+        TaskScheduler scheduler = plugin.getTaskScheduler();
+
+        if (GET_CHUNK_AT_ASYNC != null) {
+            List<CompletableFuture<?>> loads = new ArrayList<>();
+            for (int cx = getMinChunkX(); cx <= getMaxChunkX(); cx++) {
+                for (int cz = getMinChunkZ(); cz <= getMaxChunkZ(); cz++) {
+                    loads.add(loadChunkAsync(plugin, scheduler, cx, cz));
+                }
+            }
+            return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]));
+        }
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        scheduler.runGlobal(() -> {
+            List<CompletableFuture<?>> loads = new ArrayList<>();
+            int spigotDelay = 0;
+
+            for (int cx = getMinChunkX(); cx <= getMaxChunkX(); cx++) {
+                for (int cz = getMinChunkZ(); cz <= getMaxChunkZ(); cz++) {
+                    if (world.isChunkLoaded(cx, cz)) {
+                        addTicket(plugin, cx, cz);
+                        continue;
+                    }
+
+                    // Spigot 没有异步加载：每 tick 同步加载一个区块，至少不会挤在播放的 tick 里
+                    loads.add(loadChunkLater(plugin, cx, cz, ++spigotDelay));
+                }
+            }
+
+            CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).whenComplete((v, e) -> {
+                if (e != null) {
+                    done.completeExceptionally(e);
+                } else {
+                    done.complete(null);
+                }
+            });
+        });
+
+        return done;
+    }
+
+    // 归还 loadChunks 拿到的票；其他屏幕或粘贴还持有的区块不会被移除。必须在区域线程上调用
+    public void releaseChunks(Main plugin) {
+        for (Long key : ticketedChunks) {
+            if (ticketedChunks.remove(key)) {
+                plugin.releaseChunkTicket(world, (int) (key >> 32), (int) (long) key);
+            }
+        }
+    }
+
+    private void addTicket(Main plugin, int cx, int cz) {
+        if (ticketedChunks.add(((long) cx << 32) | (cz & 0xFFFFFFFFL))) {
+            plugin.acquireChunkTicket(world, cx, cz);
+        }
+    }
+
+    private CompletableFuture<?> loadChunkAsync(Main plugin, TaskScheduler scheduler, int cx, int cz) {
+        try {
+            CompletableFuture<?> load = (CompletableFuture<?>) GET_CHUNK_AT_ASYNC.invoke(world, cx, cz);
+            // 区块已加载，加票不会再触发同步加载；票要在拥有该区块的线程上加
+            return load.thenRunAsync(() -> addTicket(plugin, cx, cz),
+                    task -> scheduler.runAtRegion(world, cx, cz, task));
+        } catch (ReflectiveOperationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<?> loadChunkLater(Main plugin, int cx, int cz, int delay) {
+        CompletableFuture<Void> load = new CompletableFuture<>();
+        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            addTicket(plugin, cx, cz);
+            load.complete(null);
+        }, delay);
+        return load;
+    }
+
+    private static boolean isOwnedByCurrentRegion(Entity entity) {
+        if (IS_OWNED_BY_CURRENT_REGION == null) return true;
+        try {
+            return (boolean) IS_OWNED_BY_CURRENT_REGION.invoke(null, entity);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private static Method findIsOwnedByCurrentRegion() {
+        try {
+            return Bukkit.class.getMethod("isOwnedByCurrentRegion", Entity.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Method findGetChunkAtAsync() {
+        try {
+            return World.class.getMethod("getChunkAtAsync", int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public int getCenterChunkX() {
+        return (x + width / 2) >> 4;
+    }
+
+    public int getCenterChunkZ() {
+        return (z + height / 2) >> 4;
+    }
+
+    public int getMinChunkX() {
+        return x >> 4;
+    }
+
+    public int getMaxChunkX() {
+        return (x + width - 1) >> 4;
+    }
+
+    public int getMinChunkZ() {
+        return z >> 4;
+    }
+
+    public int getMaxChunkZ() {
+        return (z + height - 1) >> 4;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,139 @@
+package dev.bdinc.minecraft_video_player;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters and latency histograms of one playback session. Written from the
+ * decode, tick and sampling threads without locking; histograms cover the whole
+ * session, rates cover the last sampling interval.
+ */
+public class SessionMetrics {
+
+    private final String sessionId;
+    private final String kind;
+    private final long startedAt = System.currentTimeMillis();
+
+    private final LatencyHistogram decodeTime = new LatencyHistogram();
+    private final LatencyHistogram mapTime = new LatencyHistogram();
+    private final LatencyHistogram blockWriteTime = new LatencyHistogram();
+
+    private final LongAdder framesShown = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder blocksWritten = new LongAdder();
+
+    private volatile double targetFps;
+    private volatile IntSupplier queueDepth = () -> 0;
+
+    // 由 MetricsRegistry 定期更新
+    private volatile double effectiveFps;
+    private volatile double blocksPerSecond;
+    private long lastFramesShown;
+    private long lastBlocksWritten;
+    private long lastSampleNanos = System.nanoTime();
+
+    SessionMetrics(String sessionId, String kind) {
+        this.sessionId = sessionId;
+        this.kind = kind;
+    }
+
+    void recordDecode(long nanos) {
+        decodeTime.record(nanos);
+    }
+
+    void recordMap(long nanos) {
+        mapTime.record(nanos);
+    }
+
+    // 一次写入：在区域线程上花的时间和写入的方块数
+    void recordBlockWrite(long nanos, int blocks) {
+        blockWriteTime.record(nanos);
+        blocksWritten.add(blocks);
+    }
+
+    void frameShown() {
+        framesShown.increment();
+    }
+
+    void framesDropped(int frames) {
+        framesDropped.add(frames);
+    }
+
+    void setTargetFps(double targetFps) {
+        this.targetFps = targetFps;
+    }
+
+    void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    synchronized void sample() {
+        long now = System.nanoTime();
+        double seconds = (now - lastSampleNanos) / 1e9;
+        if (seconds <= 0) return;
+
+        long shown = framesShown.sum();
+        long blocks = blocksWritten.sum();
+        effectiveFps = (shown - lastFramesShown) / seconds;
+        blocksPerSecond = (blocks - lastBlocksWritten) / seconds;
+        lastFramesShown = shown;
+        lastBlocksWritten = blocks;
+        lastSampleNanos = now;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    // "video"、"image" 或 "undo"
+    public String getKind() {
+        return kind;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    // 上一个采样周期里实际贴到屏幕上的帧率
+    public double getEffectiveFps() {
+        return effectiveFps;
+    }
+
+    // 视频帧率和配置上限中较小的一个，图片为 0
+    public double getTargetFps() {
+        return targetFps;
+    }
+
+    // 读取并转换一帧的耗时（纳秒）
+    public LatencyHistogram getDecodeTime() {
+        return decodeTime;
+    }
+
+    // 把一帧映射到调色板方块的耗时（纳秒）
+    public LatencyHistogram getMapTime() {
+        return mapTime;
+    }
+
+    // 每 tick 在区域线程上放置方块的耗时（纳秒）
+    public LatencyHistogram getBlockWriteTime() {
+        return blockWriteTime;
+    }
+
+    public double getBlocksPerSecond() {
+        return blocksPerSecond;
+    }
+
+    public long getFramesShown() {
+        return framesShown.sum();
+    }
+
+    // 解码了但没贴到屏幕上的帧：被降帧率丢掉、无人观看或被更新的帧替换
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+
+    // 等待屏幕 tick 的帧数
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+}
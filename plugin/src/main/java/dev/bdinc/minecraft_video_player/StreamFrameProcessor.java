@@ -1,6 +1,5 @@
 package dev.bdinc.minecraft_video_player;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 
@@ -55,7 +54,7 @@ public class StreamFrameProcessor {
                             BufferedImage image = ImageIO.read(imagePath.toFile());
                             if (image != null) {
                                 // Run the processImage method on the main server thread
-                                Bukkit.getScheduler().runTask(plugin, () -> plugin.processImageAsync(image, new Location(world, x, y, z)));
+                                plugin.getTaskScheduler().runGlobal(() -> plugin.processImageAsync(image, new Location(world, x, y, z)));
                             }
                         }
 
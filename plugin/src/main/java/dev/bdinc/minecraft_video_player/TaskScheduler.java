@@ -0,0 +1,61 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on the thread that owns a piece of the world. On Folia that is the
+ * region thread owning the given chunk, so screens in different regions render in
+ * parallel; everywhere else it is the main server thread.
+ */
+public interface TaskScheduler {
+
+    // 在全局 tick 线程上运行（非 Folia 时就是主线程）
+    void runGlobal(Runnable task);
+
+    Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+
+    // 在拥有区块 (chunkX, chunkZ) 的线程上运行
+    void runAtRegion(World world, int chunkX, int chunkZ, Runnable task);
+
+    Task runAtRegionTimer(World world, int chunkX, int chunkZ, Runnable task, long delayTicks, long periodTicks);
+
+    default <T> CompletableFuture<T> supplyAtRegion(World world, int chunkX, int chunkZ, Supplier<T> supplier) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        runAtRegion(world, chunkX, chunkZ, () -> {
+            try {
+                result.complete(supplier.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    static TaskScheduler create(Plugin plugin) {
+        if (isFolia()) {
+            try {
+                return new FoliaTaskScheduler(plugin);
+            } catch (ReflectiveOperationException e) {
+                plugin.getLogger().warning("Folia detected but its schedulers are unavailable, using the Bukkit scheduler: " + e.getMessage());
+            }
+        }
+        return new BukkitTaskScheduler(plugin);
+    }
+
+    static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    interface Task {
+        void cancel();
+    }
+}
@@ -0,0 +1,110 @@
+package dev.bdinc.minecraft_video_player;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the last {@code maxLevels} snapshots for undo. When the in-memory snapshots
+ * exceed the memory budget the oldest ones are spilled to disk, or dropped if
+ * spilling is disabled. The newest snapshot always stays available. Spilling and
+ * deleting spill files happen on {@code ioExecutor}, never on the caller's thread.
+ */
+public class UndoJournal {
+
+    private final Deque<BlockSnapshot> entries = new ArrayDeque<>();
+    private final int maxLevels;
+    private final long memoryBudgetBytes;
+    private final boolean spillToDisk;
+    private final File spillDirectory;
+    private final Executor ioExecutor;
+    private final Logger logger;
+
+    public UndoJournal(int maxLevels, long memoryBudgetBytes, boolean spillToDisk, File spillDirectory,
+                       Executor ioExecutor, Logger logger) {
+        this.maxLevels = Math.max(1, maxLevels);
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.spillToDisk = spillToDisk;
+        this.spillDirectory = spillDirectory;
+        this.ioExecutor = ioExecutor;
+        this.logger = logger;
+    }
+
+    public void push(BlockSnapshot snapshot) {
+        List<BlockSnapshot> dropped = new ArrayList<>();
+        synchronized (this) {
+            entries.addLast(snapshot);
+            while (entries.size() > maxLevels) {
+                dropped.add(entries.pollFirst());
+            }
+        }
+
+        // push 在 tick 线程上调用，写入和删除文件交给 I/O 线程
+        ioExecutor.execute(() -> {
+            for (BlockSnapshot old : dropped) {
+                old.discard();
+            }
+            enforceMemoryBudget();
+        });
+    }
+
+    // 取出最新的记录，没有时返回 null
+    public synchronized BlockSnapshot pop() {
+        return entries.pollLast();
+    }
+
+    public synchronized void clear() {
+        for (BlockSnapshot snapshot : entries) {
+            snapshot.discard();
+        }
+        entries.clear();
+    }
+
+    private void enforceMemoryBudget() {
+        List<BlockSnapshot> toSpill = new ArrayList<>();
+        synchronized (this) {
+            long inMemory = 0;
+            for (BlockSnapshot snapshot : entries) {
+                inMemory += snapshot.getMemoryBytes();
+            }
+
+            BlockSnapshot newest = entries.peekLast();
+            Iterator<BlockSnapshot> it = entries.iterator();
+            while (inMemory > memoryBudgetBytes && it.hasNext()) {
+                BlockSnapshot snapshot = it.next();
+                if (snapshot == newest) break;
+                if (snapshot.isSpilled()) continue;
+
+                inMemory -= snapshot.getMemoryBytes();
+                if (spillToDisk) {
+                    toSpill.add(snapshot);
+                } else {
+                    it.remove();
+                }
+            }
+        }
+
+        // 写文件时不持有锁，tick 线程上的 push 不用等
+        for (BlockSnapshot snapshot : toSpill) {
+            synchronized (this) {
+                // 期间可能已经被撤销取走
+                if (!entries.contains(snapshot)) continue;
+            }
+            try {
+                snapshot.spill(spillDirectory);
+            } catch (IOException e) {
+                logger.warning("Could not spill undo snapshot to disk, dropping it: " + e.getMessage());
+                snapshot.discard();
+                synchronized (this) {
+                    entries.remove(snapshot);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.World;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class VideoFrameProcessor {
+
+    private final Main plugin;
+    private final int x;
+    private final int y;
+    private final int z;
+    private final ScreenArea area;
+    private final BlockWriter writer;
+    private final BlockingQueue<MappedFrame> frameQueue;
+    private final SessionMetrics metrics;
+
+    private TaskScheduler.Task task;
+    private BlockSnapshot snapshot;
+    private int ticksUntilViewerCheck;
+    // 没有玩家在附近时不写方块，解码线程也只推进时钟
+    private volatile boolean visible = true;
+    private volatile boolean stopped;
+
+    public VideoFrameProcessor(Main plugin, World world, int x, int y, int z, SessionMetrics metrics) {
+        this.plugin = plugin;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.area = new ScreenArea(world, x, y, z, Main.MAX_WIDTH, Main.MAX_HEIGHT);
+        this.writer = new BlockWriter(area, metrics.getSessionId());
+        this.frameQueue = new LinkedBlockingQueue<>();
+        this.metrics = metrics;
+        metrics.setQueueDepth(frameQueue::size);
+    }
+
+    // 加载区块并加票，然后开始贴帧；屏幕准备好贴第一帧时 future 完成
+    public CompletableFuture<Void> start() {
+        return area.loadChunks(plugin).thenCompose(v -> plugin.getTaskScheduler().supplyAtRegion(
+                area.getWorld(), area.getCenterChunkX(), area.getCenterChunkZ(), () -> {
+                    startRendering();
+                    return null;
+                }));
+    }
+
+    private void startRendering() {
+        // 第一帧之前记录原来的方块，供 /undoimage 恢复
+        snapshot = BlockSnapshot.capture(area);
+        snapshot.setStopDrawing(this::stop);
+        plugin.getUndoJournal().push(snapshot);
+
+        plugin.registerBlockWriter(writer);
+        // Folia 上在屏幕所在区域的线程上运行，不同区域的屏幕可以并行渲染
+        task = plugin.getTaskScheduler().runAtRegionTimer(
+                area.getWorld(), area.getCenterChunkX(), area.getCenterChunkZ(), this::tick, 1, 1);
+    }
+
+    private void tick() {
+        if (Main.cullingEnabled && --ticksUntilViewerCheck <= 0) {
+            ticksUntilViewerCheck = Main.VIEWER_CHECK_TICKS;
+            updateVisibility();
+        }
+
+        if (!visible) {
+            discardFrames();
+            writer.clear();
+            return;
+        }
+
+        MappedFrame frame = nextFrame();
+        if (frame != null) {
+            plugin.pasteFrameAsync(writer, x, y, z, frame, true);
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (snapshot != null) {
+            snapshot.finishedDrawing();
+            snapshot = null;
+        }
+        plugin.unregisterBlockWriter(writer);
+        area.releaseChunks(plugin);
+        frameQueue.clear();
+    }
+
+    // 无人观看时队列里的帧都已过时，全部丢掉。有人回来后解码线程跳到当前位置，第一帧和
+    // 世界里的方块逐个比较，而写入器已经清空，所以它就是一次完整刷新
+    private void discardFrames() {
+        int dropped = 0;
+        while (frameQueue.poll() != null) {
+            dropped++;
+        }
+        metrics.framesDropped(dropped);
+    }
+
+    private void updateVisibility() {
+        visible = area.hasViewers(Main.VIEWER_RADIUS);
+    }
+
+    // 是否有玩家能看到屏幕；为 false 时解码只推进时钟，不取帧
+    public boolean hasViewers() {
+        return visible;
+    }
+
+    public void addFrame(MappedFrame frame) {
+        if (stopped) return;
+
+        PipelineEvents.FrameQueue event = new PipelineEvents.FrameQueue();
+        if (event.isEnabled()) {
+            event.begin();
+            frame.queueEvent = event;
+        }
+        frameQueue.offer(frame);
+    }
+
+    MappedFrame nextFrame() {
+        MappedFrame frame = frameQueue.poll();
+        if (frame != null && frame.queueEvent != null) {
+            PipelineEvents.FrameQueue event = frame.queueEvent;
+            event.end();
+            if (event.shouldCommit()) {
+                event.sessionId = writer.getSessionId();
+                event.frameNumber = frame.frameNumber;
+                event.commit();
+            }
+        }
+        return frame;
+    }
+
+    public ScreenArea getArea() {
+        return area;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+}
@@ -0,0 +1,66 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+
+/**
+ * An in-memory box of blocks standing in for the world, so the whole pipeline can
+ * run without a server. Counts every block that actually changes.
+ */
+class VoxelGridRenderSink implements RenderSink {
+
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final Material[] blocks;
+    private long changedBlocks;
+
+    VoxelGridRenderSink(int originX, int originY, int originZ, int sizeX, int sizeY, int sizeZ, Material fill) {
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.blocks = new Material[sizeX * sizeY * sizeZ];
+        Arrays.fill(blocks, fill);
+    }
+
+    // 覆盖 area 的一格厚网格，全部填成 fill
+    static VoxelGridRenderSink of(ScreenArea area, Material fill) {
+        return new VoxelGridRenderSink(area.getX(), area.getY(), area.getZ(),
+                area.getWidth(), 1, area.getHeight(), fill);
+    }
+
+    private int index(int x, int y, int z) {
+        int dx = x - originX;
+        int dy = y - originY;
+        int dz = z - originZ;
+        if (dx < 0 || dx >= sizeX || dy < 0 || dy >= sizeY || dz < 0 || dz >= sizeZ) {
+            throw new IllegalArgumentException("Block " + x + "," + y + "," + z + " is outside the grid");
+        }
+        return (dx * sizeY + dy) * sizeZ + dz;
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        return blocks[index(x, y, z)];
+    }
+
+    @Override
+    public void setBlock(BlockUpdate update) {
+        int index = index(update.x, update.y, update.z);
+        if (blocks[index] != update.material) {
+            blocks[index] = update.material;
+            changedBlocks++;
+        }
+    }
+
+    public long getChangedBlocks() {
+        return changedBlocks;
+    }
+}
@@ -0,0 +1,44 @@
+package dev.bdinc.minecraft_video_player;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.util.Collection;
+
+public class VpStatsCommand implements CommandExecutor {
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        MetricsRegistry metrics = Main.getInstance().getMetrics();
+
+        sender.sendMessage(String.format("§6Memory: §fheap %.0f/%.0f MB, native %.0f MB",
+                metrics.getHeapUsedBytes() / 1048576.0, metrics.getHeapMaxBytes() / 1048576.0,
+                metrics.getNativeBytes() / 1048576.0));
+
+        Collection<SessionMetrics> sessions = metrics.getSessions();
+        if (sessions.isEmpty()) {
+            sender.sendMessage("§7No active playback.");
+            return true;
+        }
+
+        for (SessionMetrics session : sessions) {
+            sender.sendMessage(String.format("§a%s §7(%ds)", session.getSessionId(),
+                    (System.currentTimeMillis() - session.getStartedAt()) / 1000));
+            sender.sendMessage(String.format("  §fFPS %.1f / %.1f, dropped %d, queue %d",
+                    session.getEffectiveFps(), session.getTargetFps(),
+                    session.getFramesDropped(), session.getQueueDepth()));
+            sender.sendMessage("  §fdecode " + latency(session.getDecodeTime()));
+            sender.sendMessage("  §fmap " + latency(session.getMapTime()));
+            sender.sendMessage(String.format("  §fblock write/tick %s, %.0f blocks/s",
+                    latency(session.getBlockWriteTime()), session.getBlocksPerSecond()));
+        }
+        return true;
+    }
+
+    private static String latency(LatencyHistogram histogram) {
+        return String.format("p50 %.2f p99 %.2f max %.2f ms",
+                MetricsRegistry.millis(histogram.getPercentile(50)), MetricsRegistry.millis(histogram.getPercentile(99)),
+                MetricsRegistry.millis(histogram.getMax()));
+    }
+}